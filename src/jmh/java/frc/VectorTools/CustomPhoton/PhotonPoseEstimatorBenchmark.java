@@ -0,0 +1,58 @@
+package frc.VectorTools.CustomPhoton;
+
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.VectorTools.CustomPhoton.PhotonPoseEstimator.PoseStrategy;
+import java.util.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+/** Decodes a serialized frame and estimates the robot pose from it with each strategy. */
+@State(Scope.Thread)
+public class PhotonPoseEstimatorBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int tagCount;
+
+    @Param({
+        "LOWEST_AMBIGUITY",
+        "CLOSEST_TO_CAMERA_HEIGHT",
+        "CLOSEST_TO_REFERENCE_POSE",
+        "CLOSEST_TO_LAST_POSE",
+        "AVERAGE_BEST_TARGETS",
+        "MULTI_TAG_PNP"
+    })
+    public PoseStrategy strategy;
+
+    private final PhotonPipelineResult result = new PhotonPipelineResult();
+    private PhotonPoseEstimator poseEstimator;
+    private byte[] frame;
+    private double timestamp = 0.0;
+
+    @Setup
+    public void setup() {
+        Transform3d robotToCamera = new Transform3d(new Translation3d(0.2, 0, 0.5), new Rotation3d());
+        AprilTagTable aprilTags = SyntheticFrames.createAprilTags();
+        frame = SyntheticFrames.createFrame(aprilTags, robotToCamera, tagCount);
+
+        poseEstimator = new PhotonPoseEstimator(aprilTags, strategy, robotToCamera);
+        poseEstimator.setReferencePose(SyntheticFrames.robotPose);
+        poseEstimator.setLastPose(SyntheticFrames.robotPose);
+    }
+
+    @Benchmark
+    public Optional<EstimatedRobotPose> decodeAndUpdate() {
+        result.createFromPacket(new Packet(frame));
+        // Each frame needs a new timestamp, the estimator returns nothing for a repeated one
+        timestamp += 0.02;
+        result.setTimestampSeconds(timestamp);
+        return poseEstimator.update(
+                result, SyntheticFrames.cameraMatrixData, SyntheticFrames.distCoeffsData);
+    }
+}
@@ -0,0 +1,96 @@
+package frc.VectorTools.CustomPhoton;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFieldLayout.OriginPosition;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import frc.robot.subsystems.vision.VisionConstants.FieldConstants;
+import java.util.ArrayList;
+import java.util.List;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+/**
+ * Serialized frames of a wall of AprilTags in front of the robot, as PhotonVision would publish
+ * them, for benchmarking the pose estimation path without a camera.
+ */
+public final class SyntheticFrames {
+    public static final int maxTags = 8;
+
+    /* A 640x480 camera with a roughly 50 degree horizontal field of view, without distortion */
+    public static final double[] cameraMatrixData = {700, 0, 320, 0, 700, 240, 0, 0, 1};
+    public static final double[] distCoeffsData = {0, 0, 0, 0, 0};
+
+    /* The robot stands 3 meters from the wall, facing it */
+    public static final Pose2d robotPose = new Pose2d(1.0, 4.0, new Rotation2d());
+
+    private static final double wallX = 4.0;
+    private static final double tagHeight = 0.5;
+    private static final double tagSpacing = 0.3;
+    private static final double latencyMillis = 30.0;
+    private static final double ambiguity = 0.05;
+
+    private SyntheticFrames() {}
+
+    /** Returns tags 1 to {@link #maxTags} spread along the wall, facing the robot. */
+    public static AprilTagTable createAprilTags() {
+        List<AprilTag> tags = new ArrayList<>();
+        for (int i = 0; i < maxTags; i++) {
+            double y = robotPose.getY() + (i - (maxTags - 1) / 2.0) * tagSpacing;
+            tags.add(new AprilTag(i + 1, new Pose3d(wallX, y, tagHeight, new Rotation3d(0, 0, Math.PI))));
+        }
+        AprilTagFieldLayout layout =
+                new AprilTagFieldLayout(tags, FieldConstants.fieldLength, FieldConstants.fieldWidth);
+        return new AprilTagTable(layout, OriginPosition.kBlueAllianceWallRightSide);
+    }
+
+    /**
+     * Serializes a frame of the first tagCount tags as seen by a camera on the robot at {@link
+     * #robotPose}.
+     */
+    public static byte[] createFrame(
+            AprilTagTable aprilTags, Transform3d robotToCamera, int tagCount) {
+        MultiCameraPoseSolver.CameraModel cameraModel =
+                new MultiCameraPoseSolver.CameraModel(robotToCamera);
+        cameraModel.setCalibration(cameraMatrixData, distCoeffsData);
+        Pose3d cameraPose = new Pose3d(robotPose).transformBy(robotToCamera);
+
+        List<PhotonTrackedTarget> targets = new ArrayList<>();
+        double[] corners = new double[8];
+        for (int id = 1; id <= tagCount; id++) {
+            Pose3d tagPose = aprilTags.getTagPose(id);
+            if (!MultiCameraPoseSolver.projectTag(cameraModel, robotPose, tagPose, corners)) {
+                throw new IllegalArgumentException("Tag " + id + " is behind the camera");
+            }
+
+            List<TargetCorner> detectedCorners = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                detectedCorners.add(new TargetCorner(corners[i * 2], corners[i * 2 + 1]));
+            }
+            Transform3d cameraToTarget = new Transform3d(cameraPose, tagPose);
+            targets.add(
+                    new PhotonTrackedTarget(
+                            0,
+                            0,
+                            1,
+                            0,
+                            id,
+                            cameraToTarget,
+                            cameraToTarget,
+                            ambiguity,
+                            detectedCorners,
+                            detectedCorners));
+        }
+
+        PhotonPipelineResult result = new PhotonPipelineResult(latencyMillis, targets);
+        Packet packet = new Packet(result.getPacketSize());
+        result.populatePacket(packet);
+        return packet.getData();
+    }
+}
@@ -0,0 +1,77 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.VectorTools.CustomPhoton.AprilTagTable;
+import frc.VectorTools.CustomPhoton.SyntheticFrames;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Solves one loop's frames from two cameras end to end, as Vision's solver thread does: decoding,
+ * each camera's estimate, the joint solve and filtering.
+ */
+@State(Scope.Thread)
+public class MultiCameraFusionBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int tagCount;
+
+    private MultiCameraFusion fusion;
+    private byte[] leftFrame;
+    private byte[] rightFrame;
+    private final double[] leftTimestamps = {0.0};
+    private final double[] rightTimestamps = {0.0};
+    private final Pose2d[] referencePoses = {SyntheticFrames.robotPose};
+
+    @Setup
+    public void setup() {
+        Transform3d leftPosition = new Transform3d(new Translation3d(0.2, 0.25, 0.5), new Rotation3d());
+        Transform3d rightPosition =
+                new Transform3d(new Translation3d(0.2, -0.25, 0.5), new Rotation3d());
+
+        AprilTagTable aprilTags = SyntheticFrames.createAprilTags();
+        leftFrame = SyntheticFrames.createFrame(aprilTags, leftPosition, tagCount);
+        rightFrame = SyntheticFrames.createFrame(aprilTags, rightPosition, tagCount);
+
+        fusion =
+                new MultiCameraFusion(
+                        List.of(
+                                new Camera("left", new CameraIO() {}, leftPosition, aprilTags),
+                                new Camera("right", new CameraIO() {}, rightPosition, aprilTags)));
+    }
+
+    @Benchmark
+    public void solveBatch(Blackhole blackhole) {
+        // Each batch needs new timestamps, the estimators return nothing for a repeated one
+        leftTimestamps[0] += 0.02;
+        rightTimestamps[0] = leftTimestamps[0] + 0.005;
+
+        fusion.clear();
+        fusion.addFrames(
+                0,
+                leftFrame,
+                leftTimestamps,
+                leftTimestamps,
+                leftTimestamps[0],
+                SyntheticFrames.cameraMatrixData,
+                SyntheticFrames.distCoeffsData,
+                referencePoses);
+        fusion.addFrames(
+                1,
+                rightFrame,
+                rightTimestamps,
+                rightTimestamps,
+                rightTimestamps[0],
+                SyntheticFrames.cameraMatrixData,
+                SyntheticFrames.distCoeffsData,
+                referencePoses);
+        fusion.solve(blackhole::consume, blackhole::consume);
+    }
+}
@@ -0,0 +1,60 @@
+package frc.VectorTools.CustomPhoton;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFieldLayout.OriginPosition;
+import edu.wpi.first.math.geometry.Pose3d;
+
+/**
+ * Immutable AprilTag poses for one field origin, indexed by fiducial ID. Built once so pose
+ * estimation can look tags up without allocating, and shared between threads.
+ */
+public final class AprilTagTable {
+    private final OriginPosition origin;
+    private final Pose3d[] tagPoses;
+    private final AprilTag[] tags;
+
+    /**
+     * Builds the table for one origin. Temporarily changes the origin of the layout, so the layout
+     * must not be used by another thread at the same time.
+     *
+     * @param layout the field layout
+     * @param origin the origin the tag poses are relative to
+     */
+    public AprilTagTable(AprilTagFieldLayout layout, OriginPosition origin) {
+        this.origin = origin;
+
+        int maxId = -1;
+        for (AprilTag tag : layout.getTags()) {
+            maxId = Math.max(maxId, tag.ID);
+        }
+        tagPoses = new Pose3d[maxId + 1];
+        tags = new AprilTag[maxId + 1];
+
+        Pose3d previousOrigin = layout.getOrigin();
+        layout.setOrigin(origin);
+        for (AprilTag tag : layout.getTags()) {
+            layout.getTagPose(tag.ID)
+                    .ifPresent(
+                            (pose) -> {
+                                tagPoses[tag.ID] = pose;
+                                tags[tag.ID] = new AprilTag(tag.ID, pose);
+                            });
+        }
+        layout.setOrigin(previousOrigin);
+    }
+
+    public OriginPosition getOrigin() {
+        return origin;
+    }
+
+    /** Returns the pose of the tag, or null if it is not on the field. */
+    public Pose3d getTagPose(int fiducialId) {
+        return fiducialId >= 0 && fiducialId < tagPoses.length ? tagPoses[fiducialId] : null;
+    }
+
+    /** Returns the tag with its pose relative to this table's origin, or null if it is unknown. */
+    public AprilTag getTag(int fiducialId) {
+        return fiducialId >= 0 && fiducialId < tags.length ? tags[fiducialId] : null;
+    }
+}
@@ -0,0 +1,428 @@
+package frc.VectorTools.CustomPhoton;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.util.Units;
+import java.util.List;
+import org.photonvision.targeting.TargetCorner;
+
+/**
+ * Solves one robot pose from the AprilTag corners seen by several cameras at once, by minimizing
+ * the reprojection error of every corner in every camera.
+ *
+ * <p>The robot is assumed to be flat on the floor, so only x, y and heading are solved. An initial
+ * guess is needed, usually a single camera's estimate. Observations are stored in preallocated
+ * arrays, so clearing, adding and solving do not allocate. Not thread safe.
+ */
+public class MultiCameraPoseSolver {
+    private static final double tagSize = Units.inchesToMeters(6);
+    // Tag corners in the tag's frame, in the same order as PhotonVision's tag model
+    private static final double[][] tagCorners = {
+        {0, -tagSize / 2, -tagSize / 2},
+        {0, tagSize / 2, -tagSize / 2},
+        {0, tagSize / 2, tagSize / 2},
+        {0, -tagSize / 2, tagSize / 2}
+    };
+
+    private static final int maxIterations = 15;
+    private static final double derivativeStep = 1e-6;
+    private static final double translationTolerance = 1e-5;
+    private static final double rotationTolerance = 1e-6;
+
+    /** Mounting position and calibration of one camera. */
+    public static class CameraModel {
+        // Rotation from the robot frame to the camera frame, row major
+        private final double[] robotToCameraRotation = new double[9];
+        private final double tx;
+        private final double ty;
+        private final double tz;
+
+        private double[] cameraMatrixData;
+        private double[] distCoeffsData;
+        private boolean calibrated = false;
+        private double fx;
+        private double fy;
+        private double cx;
+        private double cy;
+        private double k1;
+        private double k2;
+        private double p1;
+        private double p2;
+        private double k3;
+
+        /**
+         * @param robotToCamera transform from the center of the robot to the camera
+         */
+        public CameraModel(Transform3d robotToCamera) {
+            tx = robotToCamera.getX();
+            ty = robotToCamera.getY();
+            tz = robotToCamera.getZ();
+
+            // Transposed, since points are rotated from the robot frame into the camera frame
+            double[] rotation = new double[9];
+            rotationMatrix(robotToCamera.getRotation().getQuaternion(), rotation);
+            for (int row = 0; row < 3; row++) {
+                for (int column = 0; column < 3; column++) {
+                    robotToCameraRotation[row * 3 + column] = rotation[column * 3 + row];
+                }
+            }
+        }
+
+        /**
+         * Sets the calibration if the arrays differ from the last ones passed in.
+         *
+         * @param cameraMatrixData row major 3x3 camera matrix
+         * @param distCoeffsData k1, k2, p1, p2 and k3 distortion coefficients
+         * @return whether the camera has a valid calibration
+         */
+        public boolean setCalibration(double[] cameraMatrixData, double[] distCoeffsData) {
+            if (cameraMatrixData != this.cameraMatrixData || distCoeffsData != this.distCoeffsData) {
+                this.cameraMatrixData = cameraMatrixData;
+                this.distCoeffsData = distCoeffsData;
+                calibrated =
+                        cameraMatrixData != null
+                                && cameraMatrixData.length == 9
+                                && distCoeffsData != null
+                                && distCoeffsData.length == 5;
+                if (calibrated) {
+                    fx = cameraMatrixData[0];
+                    cx = cameraMatrixData[2];
+                    fy = cameraMatrixData[4];
+                    cy = cameraMatrixData[5];
+                    k1 = distCoeffsData[0];
+                    k2 = distCoeffsData[1];
+                    p1 = distCoeffsData[2];
+                    p2 = distCoeffsData[3];
+                    k3 = distCoeffsData[4];
+                }
+            }
+            return calibrated;
+        }
+    }
+
+    private final int capacity;
+    private final CameraModel[] cameras;
+    private final double[] fieldX;
+    private final double[] fieldY;
+    private final double[] fieldZ;
+    private final double[] observedU;
+    private final double[] observedV;
+    private int count = 0;
+
+    private final double[] residuals;
+    private final double[] trialResiduals;
+    private final double[][] jacobian;
+    private final double[] normal = new double[9];
+    private final double[] gradient = new double[3];
+    private final double[] step = new double[3];
+    private final double[] tagRotation = new double[9];
+
+    private double x;
+    private double y;
+    private double theta;
+    private double rmsError;
+
+    /**
+     * @param capacity the largest number of tag corners that can be added before solving
+     */
+    public MultiCameraPoseSolver(int capacity) {
+        this.capacity = capacity;
+        cameras = new CameraModel[capacity];
+        fieldX = new double[capacity];
+        fieldY = new double[capacity];
+        fieldZ = new double[capacity];
+        observedU = new double[capacity];
+        observedV = new double[capacity];
+
+        residuals = new double[capacity * 2];
+        trialResiduals = new double[capacity * 2];
+        jacobian = new double[3][capacity * 2];
+    }
+
+    /** Removes every observation. */
+    public void clear() {
+        count = 0;
+    }
+
+    /** Returns the number of tag corners added since the last clear. */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Adds the detected corners of one tag. Ignored if the camera is not calibrated, the corners are
+     * incomplete or the solver is full.
+     *
+     * @param camera the camera the tag was seen by
+     * @param tagPose the field pose of the tag
+     * @param detectedCorners the tag's corners in the image, in pixels
+     */
+    public void addTarget(CameraModel camera, Pose3d tagPose, List<TargetCorner> detectedCorners) {
+        if (!camera.calibrated
+                || detectedCorners.size() != tagCorners.length
+                || count + tagCorners.length > capacity) {
+            return;
+        }
+
+        rotationMatrix(tagPose.getRotation().getQuaternion(), tagRotation);
+        for (int i = 0; i < tagCorners.length; i++) {
+            double[] corner = tagCorners[i];
+            cameras[count] = camera;
+            fieldX[count] = tagPose.getX() + dot(tagRotation, 0, corner);
+            fieldY[count] = tagPose.getY() + dot(tagRotation, 3, corner);
+            fieldZ[count] = tagPose.getZ() + dot(tagRotation, 6, corner);
+            observedU[count] = detectedCorners.get(i).x;
+            observedV[count] = detectedCorners.get(i).y;
+            count++;
+        }
+    }
+
+    /**
+     * Refines the pose from the initial guess.
+     *
+     * @param initialGuess the starting pose, close enough to converge to the right solution
+     * @return false if there are no observations or the solution is degenerate
+     */
+    public boolean solve(Pose2d initialGuess) {
+        if (count == 0) {
+            return false;
+        }
+
+        x = initialGuess.getX();
+        y = initialGuess.getY();
+        theta = initialGuess.getRotation().getRadians();
+
+        double cost = evaluate(x, y, theta, residuals);
+        if (!Double.isFinite(cost)) {
+            return false;
+        }
+
+        // Levenberg-Marquardt with a forward difference Jacobian
+        double damping = 1e-3;
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            if (!Double.isFinite(evaluate(x + derivativeStep, y, theta, jacobian[0]))
+                    || !Double.isFinite(evaluate(x, y + derivativeStep, theta, jacobian[1]))
+                    || !Double.isFinite(evaluate(x, y, theta + derivativeStep, jacobian[2]))) {
+                return false;
+            }
+            for (int parameter = 0; parameter < 3; parameter++) {
+                double[] column = jacobian[parameter];
+                for (int i = 0; i < count * 2; i++) {
+                    column[i] = (column[i] - residuals[i]) / derivativeStep;
+                }
+            }
+
+            for (int row = 0; row < 3; row++) {
+                gradient[row] = -dot(jacobian[row], residuals, count * 2);
+                for (int column = 0; column < 3; column++) {
+                    normal[row * 3 + column] = dot(jacobian[row], jacobian[column], count * 2);
+                }
+                normal[row * 3 + row] *= 1 + damping;
+            }
+
+            if (!solve3x3(normal, gradient, step)) {
+                return false;
+            }
+
+            double trialCost = evaluate(x + step[0], y + step[1], theta + step[2], trialResiduals);
+            if (trialCost < cost) {
+                x += step[0];
+                y += step[1];
+                theta += step[2];
+                cost = trialCost;
+                System.arraycopy(trialResiduals, 0, residuals, 0, count * 2);
+                damping /= 10;
+
+                if (Math.abs(step[0]) < translationTolerance
+                        && Math.abs(step[1]) < translationTolerance
+                        && Math.abs(step[2]) < rotationTolerance) {
+                    break;
+                }
+            } else {
+                damping *= 10;
+            }
+        }
+
+        rmsError = Math.sqrt(cost / count);
+        return true;
+    }
+
+    /** Returns the solved pose. Only valid after a successful {@link #solve(Pose2d)}. */
+    public Pose2d getPose() {
+        return new Pose2d(x, y, new Rotation2d(theta));
+    }
+
+    /** Returns the root mean square reprojection error per corner of the solution, in pixels. */
+    public double getRmsError() {
+        return rmsError;
+    }
+
+    /**
+     * Projects the corners of a tag into a camera's image, in the same order as the detected corners
+     * passed to {@link #addTarget(CameraModel, Pose3d, List)}.
+     *
+     * @param camera the camera, which must be calibrated
+     * @param robotPose the pose of the robot on the floor
+     * @param tagPose the field pose of the tag
+     * @param cornersOut array of at least 8 elements, filled with the u and v pixel coordinates of
+     *     each corner
+     * @return false if the camera is not calibrated or a corner is behind the camera
+     */
+    public static boolean projectTag(
+            CameraModel camera, Pose2d robotPose, Pose3d tagPose, double[] cornersOut) {
+        if (!camera.calibrated) {
+            return false;
+        }
+
+        double[] rotation = new double[9];
+        rotationMatrix(tagPose.getRotation().getQuaternion(), rotation);
+        double cos = robotPose.getRotation().getCos();
+        double sin = robotPose.getRotation().getSin();
+        for (int i = 0; i < tagCorners.length; i++) {
+            double[] corner = tagCorners[i];
+            if (!project(
+                    camera,
+                    robotPose.getX(),
+                    robotPose.getY(),
+                    cos,
+                    sin,
+                    tagPose.getX() + dot(rotation, 0, corner),
+                    tagPose.getY() + dot(rotation, 3, corner),
+                    tagPose.getZ() + dot(rotation, 6, corner),
+                    cornersOut,
+                    i * 2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Projects every corner with the robot at the given pose.
+     *
+     * @return the sum of squared reprojection errors, or infinity if a corner is behind its camera
+     */
+    private double evaluate(double x, double y, double theta, double[] out) {
+        double cos = Math.cos(theta);
+        double sin = Math.sin(theta);
+        double cost = 0.0;
+
+        for (int i = 0; i < count; i++) {
+            if (!project(cameras[i], x, y, cos, sin, fieldX[i], fieldY[i], fieldZ[i], out, i * 2)) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            double errorU = out[i * 2] - observedU[i];
+            double errorV = out[i * 2 + 1] - observedV[i];
+            out[i * 2] = errorU;
+            out[i * 2 + 1] = errorV;
+            cost += errorU * errorU + errorV * errorV;
+        }
+
+        return cost;
+    }
+
+    /**
+     * Projects a field point into a camera's image with the robot at x, y and the heading given by
+     * its cosine and sine.
+     *
+     * @return false if the point is behind the camera, in which case out is left untouched
+     */
+    private static boolean project(
+            CameraModel camera,
+            double x,
+            double y,
+            double cos,
+            double sin,
+            double fieldX,
+            double fieldY,
+            double fieldZ,
+            double[] out,
+            int offset) {
+        // Field to robot frame
+        double dx = fieldX - x;
+        double dy = fieldY - y;
+        double robotX = cos * dx + sin * dy - camera.tx;
+        double robotY = -sin * dx + cos * dy - camera.ty;
+        double robotZ = fieldZ - camera.tz;
+
+        // Robot to camera frame, then to OpenCV's x right, y down, z forward convention
+        double[] r = camera.robotToCameraRotation;
+        double cameraX = r[0] * robotX + r[1] * robotY + r[2] * robotZ;
+        double cameraY = r[3] * robotX + r[4] * robotY + r[5] * robotZ;
+        double cameraZ = r[6] * robotX + r[7] * robotY + r[8] * robotZ;
+        double depth = cameraX;
+        if (depth < 1e-6) {
+            return false;
+        }
+        double normalizedX = -cameraY / depth;
+        double normalizedY = -cameraZ / depth;
+
+        // Brown-Conrady distortion, as used by OpenCV
+        double r2 = normalizedX * normalizedX + normalizedY * normalizedY;
+        double radial = 1 + r2 * (camera.k1 + r2 * (camera.k2 + r2 * camera.k3));
+        double distortedX =
+                normalizedX * radial
+                        + 2 * camera.p1 * normalizedX * normalizedY
+                        + camera.p2 * (r2 + 2 * normalizedX * normalizedX);
+        double distortedY =
+                normalizedY * radial
+                        + camera.p1 * (r2 + 2 * normalizedY * normalizedY)
+                        + 2 * camera.p2 * normalizedX * normalizedY;
+
+        out[offset] = camera.fx * distortedX + camera.cx;
+        out[offset + 1] = camera.fy * distortedY + camera.cy;
+        return true;
+    }
+
+    /** Solves a 3x3 system with Cramer's rule. Returns false if it is singular. */
+    private static boolean solve3x3(double[] a, double[] b, double[] out) {
+        double det = determinant(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8]);
+        if (Math.abs(det) < 1e-12) {
+            return false;
+        }
+        out[0] = determinant(b[0], a[1], a[2], b[1], a[4], a[5], b[2], a[7], a[8]) / det;
+        out[1] = determinant(a[0], b[0], a[2], a[3], b[1], a[5], a[6], b[2], a[8]) / det;
+        out[2] = determinant(a[0], a[1], b[0], a[3], a[4], b[1], a[6], a[7], b[2]) / det;
+        return true;
+    }
+
+    private static double determinant(
+            double a, double b, double c, double d, double e, double f, double g, double h, double i) {
+        return a * (e * i - f * h) - b * (d * i - f * g) + c * (d * h - e * g);
+    }
+
+    private static double dot(double[] a, double[] b, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static double dot(double[] matrix, int rowOffset, double[] vector) {
+        return matrix[rowOffset] * vector[0]
+                + matrix[rowOffset + 1] * vector[1]
+                + matrix[rowOffset + 2] * vector[2];
+    }
+
+    /** Fills out with the row major rotation matrix of a unit quaternion. */
+    private static void rotationMatrix(Quaternion q, double[] out) {
+        double w = q.getW();
+        double x = q.getX();
+        double y = q.getY();
+        double z = q.getZ();
+        out[0] = 1 - 2 * (y * y + z * z);
+        out[1] = 2 * (x * y - w * z);
+        out[2] = 2 * (x * z + w * y);
+        out[3] = 2 * (x * y + w * z);
+        out[4] = 1 - 2 * (x * x + z * z);
+        out[5] = 2 * (y * z - w * x);
+        out[6] = 2 * (x * z - w * y);
+        out[7] = 2 * (y * z + w * x);
+        out[8] = 1 - 2 * (x * x + y * y);
+    }
+}
@@ -25,7 +25,6 @@
 package frc.VectorTools.CustomPhoton;
 
 import edu.wpi.first.apriltag.AprilTag;
-import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.math.MatBuilder;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.Nat;
@@ -78,22 +77,33 @@ public class PhotonPoseEstimator {
         MULTI_TAG_PNP
     }
 
-    private AprilTagFieldLayout fieldTags;
+    // Swapped as a whole when the alliance changes, read once per update
+    private volatile AprilTagTable fieldTags;
     private PoseStrategy primaryStrategy;
     private PoseStrategy multiTagFallbackStrategy = PoseStrategy.LOWEST_AMBIGUITY;
     private final PhotonCamera camera;
     private Transform3d robotToCamera;
+    private Transform3d cameraToRobot;
+
+    // The table used by the update in progress
+    private AprilTagTable activeTags;
 
     private Pose3d lastPose;
     private Pose3d referencePose;
     protected double poseCacheTimestampSeconds = -1;
     private final Set<Integer> reportedErrors = new HashSet<>();
 
+    // Calibration matrices built from the last calibration arrays passed to update
+    private double[] cachedCameraMatrixData;
+    private Optional<Matrix<N3, N3>> cachedCameraMatrix = Optional.empty();
+    private double[] cachedCoeffsData;
+    private Optional<Matrix<N5, N1>> cachedDistCoeffs = Optional.empty();
+
     /**
      * Create a new PhotonPoseEstimator.
      *
-     * @param fieldTags A WPILib {@link AprilTagFieldLayout} linking AprilTag IDs to Pose3d objects
-     *     with respect to the FIRST field using the <a href=
+     * @param fieldTags An {@link AprilTagTable} linking AprilTag IDs to Pose3d objects with respect
+     *     to the FIRST field using the <a href=
      *     "https://docs.wpilib.org/en/stable/docs/software/advanced-controls/geometry/coordinate-systems.html#field-coordinate-system">Field
      *     Coordinate System</a>.
      * @param strategy The strategy it should use to determine the best pose.
@@ -104,22 +114,19 @@ public class PhotonPoseEstimator {
      *     Coordinate System</a>.
      */
     public PhotonPoseEstimator(
-            AprilTagFieldLayout fieldTags,
+            AprilTagTable fieldTags,
             PoseStrategy strategy,
             PhotonCamera camera,
             Transform3d robotToCamera) {
         this.fieldTags = fieldTags;
         this.primaryStrategy = strategy;
         this.camera = camera;
-        this.robotToCamera = robotToCamera;
+        setRobotToCameraTransform(robotToCamera);
     }
 
     public PhotonPoseEstimator(
-            AprilTagFieldLayout fieldTags, PoseStrategy strategy, Transform3d robotToCamera) {
-        this.fieldTags = fieldTags;
-        this.primaryStrategy = strategy;
-        this.camera = null;
-        this.robotToCamera = robotToCamera;
+            AprilTagTable fieldTags, PoseStrategy strategy, Transform3d robotToCamera) {
+        this(fieldTags, strategy, null, robotToCamera);
     }
 
     /** Invalidates the pose cache. */
@@ -134,21 +141,21 @@ public class PhotonPoseEstimator {
     }
 
     /**
-     * Get the AprilTagFieldLayout being used by the PositionEstimator.
+     * Get the AprilTagTable being used by the PositionEstimator.
      *
-     * @return the AprilTagFieldLayout
+     * @return the AprilTagTable
      */
-    public AprilTagFieldLayout getFieldTags() {
+    public AprilTagTable getFieldTags() {
         return fieldTags;
     }
 
     /**
-     * Set the AprilTagFieldLayout being used by the PositionEstimator.
+     * Set the AprilTagTable being used by the PositionEstimator. Safe to call from another thread,
+     * the next update uses the new table.
      *
-     * @param fieldTags the AprilTagFieldLayout
+     * @param fieldTags the AprilTagTable
      */
-    public void setFieldTags(AprilTagFieldLayout fieldTags) {
-        checkUpdate(this.fieldTags, fieldTags);
+    public void setFieldTags(AprilTagTable fieldTags) {
         this.fieldTags = fieldTags;
     }
 
@@ -252,6 +259,7 @@ public class PhotonPoseEstimator {
      */
     public void setRobotToCameraTransform(Transform3d robotToCamera) {
         this.robotToCamera = robotToCamera;
+        this.cameraToRobot = robotToCamera.inverse();
     }
 
     /**
@@ -303,6 +311,13 @@ public class PhotonPoseEstimator {
             return Optional.empty();
         }
 
+        // Pick up a new table set from another thread, the cached pose used the old one
+        AprilTagTable latestTags = fieldTags;
+        if (latestTags != activeTags) {
+            activeTags = latestTags;
+            invalidatePoseCache();
+        }
+
         // If the pose cache timestamp was set, and the result is from the same
         // timestamp, return an
         // empty result
@@ -377,16 +392,16 @@ public class PhotonPoseEstimator {
         for (var target : result.getTargets()) {
             visCorners.addAll(target.getDetectedCorners());
 
-            var tagPoseOpt = fieldTags.getTagPose(target.getFiducialId());
-            if (tagPoseOpt.isEmpty()) {
+            AprilTag tag = activeTags.getTag(target.getFiducialId());
+            if (tag == null) {
                 reportFiducialPoseError(target.getFiducialId());
                 continue;
             }
 
-            var tagPose = tagPoseOpt.get();
+            var tagPose = tag.pose;
 
-            // actual layout poses of visible tags -- not exposed, so have to recreate
-            knownVisTags.add(new AprilTag(target.getFiducialId(), tagPose));
+            // actual layout poses of visible tags, built once by the AprilTagTable
+            knownVisTags.add(tag);
 
             fieldToCams.add(tagPose.transformBy(target.getBestCameraToTarget().inverse()));
             fieldToCamsAlt.add(tagPose.transformBy(target.getAlternateCameraToTarget().inverse()));
@@ -400,12 +415,27 @@ public class PhotonPoseEstimator {
             distCoeffsOpt = camera.getDistCoeffs();
         }
 
-        if (cameraMatrixData != null && cameraMatrixData.length == 9) {
-            cameraMatrixOpt = Optional.of(new MatBuilder<>(Nat.N3(), Nat.N3()).fill(cameraMatrixData));
+        // The calibration arrays are only replaced when the calibration changes
+        if (cameraMatrixData != cachedCameraMatrixData) {
+            cachedCameraMatrixData = cameraMatrixData;
+            cachedCameraMatrix =
+                    cameraMatrixData != null && cameraMatrixData.length == 9
+                            ? Optional.of(new MatBuilder<>(Nat.N3(), Nat.N3()).fill(cameraMatrixData))
+                            : Optional.empty();
+        }
+        if (coeffsData != cachedCoeffsData) {
+            cachedCoeffsData = coeffsData;
+            cachedDistCoeffs =
+                    coeffsData != null && coeffsData.length == 5
+                            ? Optional.of(new MatBuilder<>(Nat.N5(), Nat.N1()).fill(coeffsData))
+                            : Optional.empty();
         }
 
-        if (coeffsData != null && coeffsData.length == 5) {
-            distCoeffsOpt = Optional.of(new MatBuilder<>(Nat.N5(), Nat.N1()).fill(coeffsData));
+        if (cachedCameraMatrix.isPresent()) {
+            cameraMatrixOpt = cachedCameraMatrix;
+        }
+        if (cachedDistCoeffs.isPresent()) {
+            distCoeffsOpt = cachedDistCoeffs;
         }
 
         boolean hasCalibData = cameraMatrixOpt.isPresent() && distCoeffsOpt.isPresent();
@@ -419,10 +449,10 @@ public class PhotonPoseEstimator {
             var best =
                     new Pose3d()
                             .plus(pnpResults.best) // field-to-camera
-                            .plus(robotToCamera.inverse()); // field-to-robot
+                            .plus(cameraToRobot); // field-to-robot
             // var alt = new Pose3d()
             // .plus(pnpResults.alt) // field-to-camera
-            // .plus(robotToCamera.inverse()); // field-to-robot
+            // .plus(cameraToRobot); // field-to-robot
 
             return Optional.of(
                     new EstimatedRobotPose(best, result.getTimestampSeconds(), result.getTargets()));
@@ -460,9 +490,9 @@ public class PhotonPoseEstimator {
 
         int targetFiducialId = lowestAmbiguityTarget.getFiducialId();
 
-        Optional<Pose3d> targetPosition = fieldTags.getTagPose(targetFiducialId);
+        Pose3d targetPosition = activeTags.getTagPose(targetFiducialId);
 
-        if (targetPosition.isEmpty()) {
+        if (targetPosition == null) {
             reportFiducialPoseError(targetFiducialId);
             return Optional.empty();
         }
@@ -470,9 +500,8 @@ public class PhotonPoseEstimator {
         return Optional.of(
                 new EstimatedRobotPose(
                         targetPosition
-                                .get()
                                 .transformBy(lowestAmbiguityTarget.getBestCameraToTarget().inverse())
-                                .transformBy(robotToCamera.inverse()),
+                                .transformBy(cameraToRobot),
                         result.getTimestampSeconds(),
                         result.getTargets()));
     }
@@ -497,9 +526,9 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = activeTags.getTagPose(target.getFiducialId());
 
-            if (targetPosition.isEmpty()) {
+            if (targetPosition == null) {
                 reportFiducialPoseError(target.getFiducialId());
                 continue;
             }
@@ -508,25 +537,20 @@ public class PhotonPoseEstimator {
                     Math.abs(
                             robotToCamera.getZ()
                                     - targetPosition
-                                            .get()
                                             .transformBy(target.getAlternateCameraToTarget().inverse())
                                             .getZ());
             double bestTransformDelta =
                     Math.abs(
                             robotToCamera.getZ()
-                                    - targetPosition
-                                            .get()
-                                            .transformBy(target.getBestCameraToTarget().inverse())
-                                            .getZ());
+                                    - targetPosition.transformBy(target.getBestCameraToTarget().inverse()).getZ());
 
             if (alternateTransformDelta < smallestHeightDifference) {
                 smallestHeightDifference = alternateTransformDelta;
                 closestHeightTarget =
                         new EstimatedRobotPose(
                                 targetPosition
-                                        .get()
                                         .transformBy(target.getAlternateCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
+                                        .transformBy(cameraToRobot),
                                 result.getTimestampSeconds(),
                                 result.getTargets());
             }
@@ -536,9 +560,8 @@ public class PhotonPoseEstimator {
                 closestHeightTarget =
                         new EstimatedRobotPose(
                                 targetPosition
-                                        .get()
                                         .transformBy(target.getBestCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
+                                        .transformBy(cameraToRobot),
                                 result.getTimestampSeconds(),
                                 result.getTargets());
             }
@@ -577,23 +600,21 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = activeTags.getTagPose(target.getFiducialId());
 
-            if (targetPosition.isEmpty()) {
+            if (targetPosition == null) {
                 reportFiducialPoseError(targetFiducialId);
                 continue;
             }
 
             Pose3d altTransformPosition =
                     targetPosition
-                            .get()
                             .transformBy(target.getAlternateCameraToTarget().inverse())
-                            .transformBy(robotToCamera.inverse());
+                            .transformBy(cameraToRobot);
             Pose3d bestTransformPosition =
                     targetPosition
-                            .get()
                             .transformBy(target.getBestCameraToTarget().inverse())
-                            .transformBy(robotToCamera.inverse());
+                            .transformBy(cameraToRobot);
 
             double altDifference = Math.abs(calculateDifference(referencePose, altTransformPosition));
             double bestDifference = Math.abs(calculateDifference(referencePose, bestTransformPosition));
@@ -633,9 +654,9 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = activeTags.getTagPose(target.getFiducialId());
 
-            if (targetPosition.isEmpty()) {
+            if (targetPosition == null) {
                 reportFiducialPoseError(targetFiducialId);
                 continue;
             }
@@ -647,9 +668,8 @@ public class PhotonPoseEstimator {
                 return Optional.of(
                         new EstimatedRobotPose(
                                 targetPosition
-                                        .get()
                                         .transformBy(target.getBestCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
+                                        .transformBy(cameraToRobot),
                                 result.getTimestampSeconds(),
                                 result.getTargets()));
             }
@@ -660,9 +680,8 @@ public class PhotonPoseEstimator {
                     new Pair<>(
                             target,
                             targetPosition
-                                    .get()
                                     .transformBy(target.getBestCameraToTarget().inverse())
-                                    .transformBy(robotToCamera.inverse())));
+                                    .transformBy(cameraToRobot)));
         }
 
         // Take the average
@@ -0,0 +1,194 @@
+package frc.VectorTools.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import java.util.Optional;
+
+/**
+ * Fixed capacity history of timestamped poses and chassis velocities. Samples are stored in
+ * parallel primitive arrays, so adding and looking up samples does not allocate. Lookups binary
+ * search the timestamps and linearly interpolate between the two closest samples.
+ *
+ * <p>Samples must be added in increasing timestamp order. Not thread safe.
+ */
+public class PoseHistory {
+    /** Indices into the array filled by {@link #getSampleAt(double, double[])}. */
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int THETA = 2;
+    public static final int VX = 3;
+    public static final int VY = 4;
+    public static final int OMEGA = 5;
+    public static final int SAMPLE_SIZE = 6;
+
+    private final int capacity;
+    private final double[] timestamps;
+    private final double[] x;
+    private final double[] y;
+    private final double[] theta;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] omega;
+
+    private int head = 0; // physical index of the oldest sample
+    private int size = 0;
+
+    private final double[] lookup = new double[SAMPLE_SIZE];
+
+    public PoseHistory(int capacity) {
+        this.capacity = capacity;
+        timestamps = new double[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        theta = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        omega = new double[capacity];
+    }
+
+    /**
+     * Adds a sample, overwriting the oldest one when full. Samples that are not newer than the
+     * latest sample are ignored.
+     *
+     * @param timestamp time in seconds
+     * @param pose field relative pose
+     * @param velocity robot relative chassis speeds
+     */
+    public void addSample(double timestamp, Pose2d pose, ChassisSpeeds velocity) {
+        addSample(
+                timestamp,
+                pose.getX(),
+                pose.getY(),
+                pose.getRotation().getRadians(),
+                velocity.vxMetersPerSecond,
+                velocity.vyMetersPerSecond,
+                velocity.omegaRadiansPerSecond);
+    }
+
+    public void addSample(
+            double timestamp,
+            double xMeters,
+            double yMeters,
+            double thetaRadians,
+            double vxMetersPerSecond,
+            double vyMetersPerSecond,
+            double omegaRadiansPerSecond) {
+        if (size > 0 && timestamp <= timestamps[physical(size - 1)]) {
+            return;
+        }
+
+        int slot;
+        if (size < capacity) {
+            slot = physical(size);
+            size++;
+        } else {
+            slot = head;
+            head = (head + 1) % capacity;
+        }
+
+        timestamps[slot] = timestamp;
+        x[slot] = xMeters;
+        y[slot] = yMeters;
+        theta[slot] = thetaRadians;
+        vx[slot] = vxMetersPerSecond;
+        vy[slot] = vyMetersPerSecond;
+        omega[slot] = omegaRadiansPerSecond;
+    }
+
+    /** Removes every sample, e.g. after the pose has been reset. */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getOldestTimestamp() {
+        return size == 0 ? Double.NaN : timestamps[head];
+    }
+
+    public double getLatestTimestamp() {
+        return size == 0 ? Double.NaN : timestamps[physical(size - 1)];
+    }
+
+    /**
+     * Interpolates the sample at the given time. Timestamps outside the history are clamped to the
+     * oldest or latest sample.
+     *
+     * @param timestamp time in seconds
+     * @param out array of at least {@link #SAMPLE_SIZE} elements, filled with x, y, theta, vx, vy and
+     *     omega
+     * @return false if the history is empty, in which case out is left untouched
+     */
+    public boolean getSampleAt(double timestamp, double[] out) {
+        if (size == 0) {
+            return false;
+        }
+
+        // Find the last sample at or before the timestamp
+        int low = 0;
+        int high = size - 1;
+        if (timestamp <= timestamps[head]) {
+            high = 0;
+        } else {
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (timestamps[physical(mid)] <= timestamp) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+        }
+
+        int before = physical(high);
+        if (high == size - 1 || timestamp <= timestamps[before]) {
+            copy(before, out);
+            return true;
+        }
+
+        int after = physical(high + 1);
+        double t = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+
+        out[X] = MathUtil.interpolate(x[before], x[after], t);
+        out[Y] = MathUtil.interpolate(y[before], y[after], t);
+        out[THETA] =
+                MathUtil.angleModulus(
+                        theta[before] + MathUtil.angleModulus(theta[after] - theta[before]) * t);
+        out[VX] = MathUtil.interpolate(vx[before], vx[after], t);
+        out[VY] = MathUtil.interpolate(vy[before], vy[after], t);
+        out[OMEGA] = MathUtil.interpolate(omega[before], omega[after], t);
+        return true;
+    }
+
+    /**
+     * Convenience wrapper around {@link #getSampleAt(double, double[])} that builds a {@link
+     * Pose2d}.
+     *
+     * @param timestamp time in seconds
+     * @return the interpolated pose, or empty if there is no history
+     */
+    public Optional<Pose2d> getPoseAt(double timestamp) {
+        if (!getSampleAt(timestamp, lookup)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Pose2d(lookup[X], lookup[Y], new Rotation2d(lookup[THETA])));
+    }
+
+    private int physical(int logicalIndex) {
+        return (head + logicalIndex) % capacity;
+    }
+
+    private void copy(int slot, double[] out) {
+        out[X] = x[slot];
+        out[Y] = y[slot];
+        out[THETA] = theta[slot];
+        out[VX] = vx[slot];
+        out[VY] = vy[slot];
+        out[OMEGA] = omega[slot];
+    }
+}
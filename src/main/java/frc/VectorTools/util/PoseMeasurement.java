@@ -13,11 +13,18 @@ public abstract class PoseMeasurement {
         public double timestamp;
         public Pose3d pose;
         public Matrix<N3, N1> stdDeviation;
+        /** Bit i is set if source i (e.g. a camera index) contributed to the measurement. */
+        public long sources;
 
         public Measurement(double timestamp, Pose3d pose, Matrix<N3, N1> stdDeviation) {
+            this(timestamp, pose, stdDeviation, 0);
+        }
+
+        public Measurement(double timestamp, Pose3d pose, Matrix<N3, N1> stdDeviation, long sources) {
             this.timestamp = timestamp;
             this.pose = pose;
             this.stdDeviation = stdDeviation;
+            this.sources = sources;
         }
     }
 }
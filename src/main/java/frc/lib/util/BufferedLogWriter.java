@@ -0,0 +1,220 @@
+package frc.lib.util;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.wpilog.WPILOGWriter;
+
+/**
+ * Writes the log through a {@link WPILOGWriter} on its own thread, so a slow or failing USB stick
+ * can never block AdvantageKit's receiver thread. That thread would otherwise fill the logger's
+ * queue and stall the robot loop once the queue is full.
+ *
+ * <p>Cycles waiting to be written are buffered up to a number of cycles and estimated bytes. Past
+ * that, new cycles are dropped and counted. The writer spills to a log in a RAM backed folder for
+ * the rest of the run if the USB folder is missing, a single write stalls too long or the buffer
+ * fills past half. A stalled write is abandoned on its thread and the buffered cycles continue on a
+ * new one.
+ */
+public class BufferedLogWriter implements LogDataReceiver {
+    private static class Pending {
+        final LogTable table;
+        final long bytes;
+
+        Pending(LogTable table, long bytes) {
+            this.table = table;
+            this.bytes = bytes;
+        }
+    }
+
+    private final String folder;
+    private final String spillFolder;
+    private final double spillAfterStallSeconds;
+    private final int maxPendingCycles;
+    private final long maxPendingBytes;
+
+    private final ArrayBlockingQueue<Pending> queue;
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong droppedCycles = new AtomicLong();
+
+    // Each writer thread only writes while its generation is current
+    private volatile int generation = 0;
+    private volatile boolean spilling = false;
+    private volatile boolean ending = false;
+    private volatile long writeStartNanos = 0;
+    private volatile double maxStallSeconds = 0.0;
+
+    // Recorded with explicit times, since an abandoned thread may still be writing
+    private final LoopTracer.Span writeSpan = LoopTracer.getInstance().span("Logging/Write");
+
+    /**
+     * @param folder folder to write the log to, usually the USB stick
+     * @param spillFolder RAM backed folder to write the log to when the first one is slow or missing
+     * @param spillAfterStallSeconds how long a single write can stall before spilling
+     * @param maxPendingCycles most cycles that can wait to be written
+     * @param maxPendingBytes most estimated bytes that can wait to be written
+     */
+    public BufferedLogWriter(
+            String folder,
+            String spillFolder,
+            double spillAfterStallSeconds,
+            int maxPendingCycles,
+            long maxPendingBytes) {
+        this.folder = folder;
+        this.spillFolder = spillFolder;
+        this.spillAfterStallSeconds = spillAfterStallSeconds;
+        this.maxPendingCycles = maxPendingCycles;
+        this.maxPendingBytes = maxPendingBytes;
+        queue = new ArrayBlockingQueue<>(maxPendingCycles);
+    }
+
+    @Override
+    public void start() {
+        File usb = new File(folder);
+        if (usb.isDirectory() && usb.canWrite()) {
+            startWriter(new WPILOGWriter(folder));
+        } else {
+            spill();
+        }
+    }
+
+    /** Lets the writer thread write the cycles that are left, then end the log. */
+    @Override
+    public void end() {
+        ending = true;
+    }
+
+    /** Buffers the cycle for the writer thread. Called on AdvantageKit's receiver thread. */
+    @Override
+    public void putTable(LogTable table) {
+        boolean slow =
+                getStallSeconds() > spillAfterStallSeconds || queue.size() > maxPendingCycles / 2;
+        if (slow && !spilling) {
+            spill();
+        }
+
+        long bytes = estimateBytes(table);
+        if (pendingBytes.get() + bytes > maxPendingBytes || !queue.offer(new Pending(table, bytes))) {
+            droppedCycles.incrementAndGet();
+            return;
+        }
+        pendingBytes.addAndGet(bytes);
+    }
+
+    /** Switches to a new writer in the spill folder, abandoning the current one. */
+    private void spill() {
+        spilling = true;
+        new File(spillFolder).mkdirs();
+        startWriter(new WPILOGWriter(spillFolder));
+    }
+
+    private void startWriter(WPILOGWriter writer) {
+        int writerGeneration = ++generation;
+        Thread thread = new Thread(() -> write(writer, writerGeneration), "BufferedLogWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void write(WPILOGWriter writer, int writerGeneration) {
+        writer.start();
+        try {
+            // Stops once replaced by the spill writer, which writes the rest
+            while (writerGeneration == generation) {
+                Pending pending = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (pending == null) {
+                    if (ending) {
+                        break;
+                    }
+                    continue;
+                }
+                pendingBytes.addAndGet(-pending.bytes);
+
+                long startNanos = System.nanoTime();
+                writeStartNanos = startNanos;
+                writer.putTable(pending.table);
+                long endNanos = System.nanoTime();
+                double stallSeconds = (endNanos - startNanos) / 1e9;
+                writeStartNanos = 0;
+                writeSpan.record(startNanos, endNanos);
+                maxStallSeconds = Math.max(maxStallSeconds, stallSeconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.end();
+        }
+    }
+
+    /** Returns the cycles waiting to be written. */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** Returns the estimated bytes of the cycles waiting to be written. */
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /** Returns how long the write in progress has taken, or 0 when none is. */
+    public double getStallSeconds() {
+        long start = writeStartNanos;
+        return start == 0 ? 0.0 : (System.nanoTime() - start) / 1e9;
+    }
+
+    public double getMaxStallSeconds() {
+        return maxStallSeconds;
+    }
+
+    /** Returns the cycles dropped because the buffer was full. */
+    public long getDroppedCycles() {
+        return droppedCycles.get();
+    }
+
+    /** Returns whether the log is being written to the spill folder. */
+    public boolean isSpilling() {
+        return spilling;
+    }
+
+    /** Estimates the size of a cycle from its keys and values. */
+    private static long estimateBytes(LogTable table) {
+        long bytes = 0;
+        for (Map.Entry<String, LogValue> entry : table.getAll(false).entrySet()) {
+            bytes += entry.getKey().length();
+            LogValue value = entry.getValue();
+            switch (value.type) {
+                case Raw:
+                    bytes += value.getRaw().length;
+                    break;
+                case String:
+                    bytes += value.getString().length();
+                    break;
+                case BooleanArray:
+                    bytes += value.getBooleanArray().length;
+                    break;
+                case IntegerArray:
+                    bytes += value.getIntegerArray().length * 8L;
+                    break;
+                case FloatArray:
+                    bytes += value.getFloatArray().length * 4L;
+                    break;
+                case DoubleArray:
+                    bytes += value.getDoubleArray().length * 8L;
+                    break;
+                case StringArray:
+                    for (String string : value.getStringArray()) {
+                        bytes += string.length();
+                    }
+                    break;
+                default:
+                    bytes += 8;
+                    break;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,247 @@
+package frc.lib.util;
+
+import com.ctre.phoenix.sensors.CANCoder;
+import com.ctre.phoenix.sensors.CANCoderStatusFrame;
+import com.ctre.phoenix.sensors.Pigeon2;
+import com.ctre.phoenix.sensors.PigeonIMU_StatusFrame;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.lib.util.CANCoderUtil.CCUsage;
+import frc.lib.util.CANSparkMaxUtil.Usage;
+import java.util.ArrayList;
+import java.util.List;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Plans the status frame periods of every device on the CAN bus in one place.
+ *
+ * <p>Each IO implementation registers its devices with the {@link Usage} it needs, plus any extra
+ * signals it reads at a faster rate. Once every device is registered, {@link #configure(double)}
+ * applies the frame periods and logs the estimated bus utilization.
+ */
+public class CANBusPlanner {
+    private static CANBusPlanner instance = null;
+
+    private static final double busBitRate = 1_000_000.0;
+    // Extended frame with 8 data bytes (131 bits) plus typical bit stuffing
+    private static final double bitsPerFrame = 150.0;
+    // Period for frames that carry nothing the robot reads
+    private static final int unusedFramePeriodMs = 500;
+
+    /** Signals a Spark Max reports, and the status frame each is sent in. */
+    public enum SparkMaxSignal {
+        kAppliedOutput(0),
+        kVelocity(1),
+        kPosition(2),
+        kAnalog(3),
+        kAlternateEncoder(4),
+        kAbsolutePosition(5),
+        kAbsoluteVelocity(6);
+
+        private final int frame;
+
+        private SparkMaxSignal(int frame) {
+            this.frame = frame;
+        }
+    }
+
+    private static final PeriodicFrame[] sparkMaxFrames = {
+        PeriodicFrame.kStatus0,
+        PeriodicFrame.kStatus1,
+        PeriodicFrame.kStatus2,
+        PeriodicFrame.kStatus3,
+        PeriodicFrame.kStatus4,
+        PeriodicFrame.kStatus5,
+        PeriodicFrame.kStatus6
+    };
+
+    /** The planned frame periods of one Spark Max. */
+    public static class SparkMaxPlan {
+        private final String name;
+        private final CANSparkMax motor;
+        private final int[] periodsMs = new int[sparkMaxFrames.length];
+
+        private SparkMaxPlan(String name, CANSparkMax motor, Usage usage, boolean enableFollowing) {
+            this.name = name;
+            this.motor = motor;
+
+            int[] usagePeriodsMs = CANSparkMaxUtil.getFramePeriods(usage, enableFollowing);
+            for (int i = 0; i < periodsMs.length; i++) {
+                periodsMs[i] = i < usagePeriodsMs.length ? usagePeriodsMs[i] : unusedFramePeriodMs;
+            }
+        }
+
+        /**
+         * Requests a signal at least as often as the given period. The fastest request for each
+         * frame wins.
+         *
+         * @param signal the signal that is read
+         * @param periodMs the longest acceptable period in milliseconds
+         */
+        public void require(SparkMaxSignal signal, int periodMs) {
+            periodsMs[signal.frame] = Math.min(periodsMs[signal.frame], periodMs);
+        }
+    }
+
+    private static class CANCoderPlan {
+        private final String name;
+        private final CANCoder cancoder;
+        private final int[] periodsMs;
+
+        private CANCoderPlan(String name, CANCoder cancoder, CCUsage usage) {
+            this.name = name;
+            this.cancoder = cancoder;
+            this.periodsMs = CANCoderUtil.getFramePeriods(usage);
+        }
+    }
+
+    // The Pigeon2 frames the robot reads, other frames are left at their defaults
+    private static final PigeonIMU_StatusFrame[] pigeon2Frames = {
+        PigeonIMU_StatusFrame.CondStatus_9_SixDeg_YPR, PigeonIMU_StatusFrame.BiasedStatus_2_Gyro
+    };
+
+    private static class Pigeon2Plan {
+        private final String name;
+        private final Pigeon2 pigeon;
+        private final int[] periodsMs;
+
+        private Pigeon2Plan(String name, Pigeon2 pigeon, int yprPeriodMs, int gyroPeriodMs) {
+            this.name = name;
+            this.pigeon = pigeon;
+            this.periodsMs = new int[] {yprPeriodMs, gyroPeriodMs};
+        }
+    }
+
+    private final List<SparkMaxPlan> sparkMaxPlans = new ArrayList<>();
+    private final List<CANCoderPlan> canCoderPlans = new ArrayList<>();
+    private final List<Pigeon2Plan> pigeon2Plans = new ArrayList<>();
+
+    private CANBusPlanner() {}
+
+    public static CANBusPlanner getInstance() {
+        if (instance == null) {
+            instance = new CANBusPlanner();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a Spark Max. Frames that are not used by the given usage are slowed down.
+     *
+     * @param name name the device's plan is logged under
+     * @param motor the Spark Max
+     * @param usage the status frame feedback to enable
+     * @param enableFollowing whether other motors follow this one
+     * @return the plan, so the caller can require extra signals
+     */
+    public SparkMaxPlan registerSparkMax(
+            String name, CANSparkMax motor, Usage usage, boolean enableFollowing) {
+        SparkMaxPlan plan = new SparkMaxPlan(name, motor, usage, enableFollowing);
+        sparkMaxPlans.add(plan);
+        return plan;
+    }
+
+    public SparkMaxPlan registerSparkMax(String name, CANSparkMax motor, Usage usage) {
+        return registerSparkMax(name, motor, usage, false);
+    }
+
+    /**
+     * Registers a CANCoder.
+     *
+     * @param name name the device's plan is logged under
+     * @param cancoder the CANCoder
+     * @param usage the status frame feedback to enable
+     */
+    public void registerCANCoder(String name, CANCoder cancoder, CCUsage usage) {
+        canCoderPlans.add(new CANCoderPlan(name, cancoder, usage));
+    }
+
+    /**
+     * Registers a Pigeon2.
+     *
+     * @param name name the device's plan is logged under
+     * @param pigeon the Pigeon2
+     * @param yprPeriodMs period of the yaw, pitch and roll frame in milliseconds
+     * @param gyroPeriodMs period of the angular velocity frame in milliseconds
+     */
+    public void registerPigeon2(String name, Pigeon2 pigeon, int yprPeriodMs, int gyroPeriodMs) {
+        pigeon2Plans.add(new Pigeon2Plan(name, pigeon, yprPeriodMs, gyroPeriodMs));
+    }
+
+    /** Returns the frames per second every registered device will send. */
+    public double getPlannedFramesPerSecond() {
+        double framesPerSecond = 0.0;
+        for (SparkMaxPlan plan : sparkMaxPlans) {
+            framesPerSecond += framesPerSecond(plan.periodsMs);
+        }
+        for (CANCoderPlan plan : canCoderPlans) {
+            framesPerSecond += framesPerSecond(plan.periodsMs);
+        }
+        for (Pigeon2Plan plan : pigeon2Plans) {
+            framesPerSecond += framesPerSecond(plan.periodsMs);
+        }
+        return framesPerSecond;
+    }
+
+    /** Returns the estimated fraction of the bus the registered devices will use. */
+    public double getPlannedUtilization() {
+        return getPlannedFramesPerSecond() * bitsPerFrame / busBitRate;
+    }
+
+    /**
+     * Applies the planned frame periods to every registered device and logs the plan. Reports a
+     * warning if the estimated utilization is over the given limit.
+     *
+     * @param maxUtilization the largest acceptable fraction of the bus, from 0 to 1
+     */
+    public void configure(double maxUtilization) {
+        for (SparkMaxPlan plan : sparkMaxPlans) {
+            for (int i = 0; i < sparkMaxFrames.length; i++) {
+                plan.motor.setPeriodicFramePeriod(sparkMaxFrames[i], plan.periodsMs[i]);
+            }
+            Logger.getInstance().recordOutput("CAN/Plan/" + plan.name, toLongs(plan.periodsMs));
+        }
+
+        for (CANCoderPlan plan : canCoderPlans) {
+            plan.cancoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, plan.periodsMs[0]);
+            plan.cancoder.setStatusFramePeriod(CANCoderStatusFrame.VbatAndFaults, plan.periodsMs[1]);
+            Logger.getInstance().recordOutput("CAN/Plan/" + plan.name, toLongs(plan.periodsMs));
+        }
+
+        for (Pigeon2Plan plan : pigeon2Plans) {
+            for (int i = 0; i < pigeon2Frames.length; i++) {
+                plan.pigeon.setStatusFramePeriod(pigeon2Frames[i], plan.periodsMs[i]);
+            }
+            Logger.getInstance().recordOutput("CAN/Plan/" + plan.name, toLongs(plan.periodsMs));
+        }
+
+        double utilization = getPlannedUtilization();
+        Logger.getInstance().recordOutput("CAN/PlannedFramesPerSecond", getPlannedFramesPerSecond());
+        Logger.getInstance().recordOutput("CAN/PlannedUtilization", utilization);
+
+        if (utilization > maxUtilization) {
+            DriverStation.reportWarning(
+                    String.format(
+                            "Planned CAN bus utilization %.0f%% is over the %.0f%% budget",
+                            utilization * 100, maxUtilization * 100),
+                    false);
+        }
+    }
+
+    private static double framesPerSecond(int[] periodsMs) {
+        double framesPerSecond = 0.0;
+        for (int periodMs : periodsMs) {
+            framesPerSecond += 1000.0 / periodMs;
+        }
+        return framesPerSecond;
+    }
+
+    private static long[] toLongs(int[] values) {
+        long[] longs = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            longs[i] = values[i];
+        }
+        return longs;
+    }
+}
@@ -24,18 +24,29 @@ public class CANCoderUtil {
      *     isconstructed.
      */
     public static void setCANCoderBusUsage(CANCoder cancoder, CCUsage usage) {
-        if (usage == CCUsage.kAll) {
-            cancoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, 10);
-            cancoder.setStatusFramePeriod(CANCoderStatusFrame.VbatAndFaults, 10);
-        } else if (usage == CCUsage.kSensorDataOnly) {
-            cancoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, 10);
-            cancoder.setStatusFramePeriod(CANCoderStatusFrame.VbatAndFaults, 100);
-        } else if (usage == CCUsage.kFaultsOnly) {
-            cancoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, 100);
-            cancoder.setStatusFramePeriod(CANCoderStatusFrame.VbatAndFaults, 10);
-        } else if (usage == CCUsage.kMinimal) {
-            cancoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, 100);
-            cancoder.setStatusFramePeriod(CANCoderStatusFrame.VbatAndFaults, 100);
+        int[] periodsMs = getFramePeriods(usage);
+        cancoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, periodsMs[0]);
+        cancoder.setStatusFramePeriod(CANCoderStatusFrame.VbatAndFaults, periodsMs[1]);
+    }
+
+    /**
+     * Returns the periods {@link #setCANCoderBusUsage(CANCoder, CCUsage)} uses, without touching a
+     * CANCoder.
+     *
+     * @param usage The status frame feedback to enable.
+     * @return the period in milliseconds of the SensorData and VbatAndFaults frames
+     */
+    public static int[] getFramePeriods(CCUsage usage) {
+        switch (usage) {
+            case kAll:
+                return new int[] {10, 10};
+            case kSensorDataOnly:
+                return new int[] {10, 100};
+            case kFaultsOnly:
+                return new int[] {100, 10};
+            case kMinimal:
+            default:
+                return new int[] {100, 100};
         }
     }
 }
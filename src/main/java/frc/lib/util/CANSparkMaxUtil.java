@@ -12,6 +12,13 @@ public class CANSparkMaxUtil {
         kMinimal
     };
 
+    private static final CANSparkMaxLowLevel.PeriodicFrame[] FRAMES = {
+        CANSparkMaxLowLevel.PeriodicFrame.kStatus0,
+        CANSparkMaxLowLevel.PeriodicFrame.kStatus1,
+        CANSparkMaxLowLevel.PeriodicFrame.kStatus2,
+        CANSparkMaxLowLevel.PeriodicFrame.kStatus3
+    };
+
     /**
      * This function allows reducing a Spark Max's CAN bus utilization by reducing the periodic status
      * frame period of nonessential frames from 20ms to 500ms.
@@ -27,28 +34,33 @@ public class CANSparkMaxUtil {
      */
     public static void setCANSparkMaxBusUsage(
             CANSparkMax motor, Usage usage, boolean enableFollowing) {
-        if (enableFollowing) {
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus0, 10);
-        } else {
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus0, 500);
+        int[] periodsMs = getFramePeriods(usage, enableFollowing);
+        for (int i = 0; i < periodsMs.length; i++) {
+            motor.setPeriodicFramePeriod(FRAMES[i], periodsMs[i]);
         }
+    }
+
+    /**
+     * Returns the periods {@link #setCANSparkMaxBusUsage(CANSparkMax, Usage, boolean)} uses for
+     * status frames 0 through 3, without touching a motor.
+     *
+     * @param usage The status frame feedack to enable.
+     * @param enableFollowing Whether to enable motor following.
+     * @return the period in milliseconds of kStatus0, kStatus1, kStatus2 and kStatus3
+     */
+    public static int[] getFramePeriods(Usage usage, boolean enableFollowing) {
+        int status0 = enableFollowing ? 10 : 500;
 
-        if (usage == Usage.kAll) {
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus1, 20);
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus2, 20);
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus3, 50);
-        } else if (usage == Usage.kPositionOnly) {
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus1, 500);
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus2, 20);
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus3, 500);
-        } else if (usage == Usage.kVelocityOnly) {
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus1, 20);
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus2, 500);
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus3, 500);
-        } else if (usage == Usage.kMinimal) {
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus1, 500);
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus2, 500);
-            motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus3, 500);
+        switch (usage) {
+            case kAll:
+                return new int[] {status0, 20, 20, 50};
+            case kPositionOnly:
+                return new int[] {status0, 500, 20, 500};
+            case kVelocityOnly:
+                return new int[] {status0, 20, 500, 500};
+            case kMinimal:
+            default:
+                return new int[] {status0, 500, 500, 500};
         }
     }
 
@@ -0,0 +1,71 @@
+package frc.lib.util;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A device value that is read from the vendor library at most once per robot loop. Repeated reads
+ * in the same loop return the cached value instead of making another JNI call.
+ *
+ * <p>{@link #beginCycle()} must be called once at the start of every loop. Cached signals are only
+ * meant to be read from the main robot thread.
+ */
+public class CachedSignal {
+    private static long cycle = 0;
+    private static double cycleTimestamp = 0.0;
+    private static int jniCalls = 0;
+    private static final LogChannel.LongChannel jniCallsChannel =
+            LogChannel.ofLong("CAN/JNICallsPerCycle");
+
+    private static final CachedSignal batteryVoltage =
+            new CachedSignal(RobotController::getBatteryVoltage);
+
+    private final DoubleSupplier reader;
+
+    private double value = 0.0;
+    private double timestamp = 0.0;
+    private long readCycle = -1;
+
+    public CachedSignal(DoubleSupplier reader) {
+        this.reader = reader;
+    }
+
+    /** Returns the value for this loop, reading it from the device on the first call. */
+    public double get() {
+        if (readCycle != cycle) {
+            value = reader.getAsDouble();
+            timestamp = cycleTimestamp;
+            readCycle = cycle;
+            jniCalls++;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the FPGA time in seconds of the loop the cached value was read in. The vendor
+     * libraries do not expose when the underlying status frame arrived, so this is the best bound
+     * available.
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /** Returns the number of loops started so far, counted in replay as well. */
+    public static long getCycle() {
+        return cycle;
+    }
+
+    /** Starts a new loop, invalidating every cached value. Logs the calls made last loop. */
+    public static void beginCycle() {
+        jniCallsChannel.record(jniCalls);
+        jniCalls = 0;
+        cycle++;
+        cycleTimestamp = Timer.getFPGATimestamp();
+    }
+
+    /** Returns the battery voltage, shared by every device that needs it this loop. */
+    public static double getBatteryVoltage() {
+        return batteryVoltage.get();
+    }
+}
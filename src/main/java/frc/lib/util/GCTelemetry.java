@@ -0,0 +1,171 @@
+package frc.lib.util;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Logs the main thread's allocation, garbage collections and heap usage of every loop, and flags
+ * loops that overran along with the collection pauses that overlapped them.
+ *
+ * <p>Collections are reported by the JVM's notification thread, usually within a millisecond of
+ * ending, so a pause that ends just before a loop is checked can occasionally be missed.
+ */
+public class GCTelemetry {
+    // Collections kept to check against overruns, enough for a few loops of minor collections
+    private static final int recentCapacity = 16;
+
+    private final double overrunSeconds;
+
+    private final long mainThreadId;
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    // Start and end of each collection in milliseconds since the JVM started
+    private final ConcurrentLinkedQueue<long[]> collections = new ConcurrentLinkedQueue<>();
+    private final long[] recentStarts = new long[recentCapacity];
+    private final long[] recentEnds = new long[recentCapacity];
+    private int recentNext = 0;
+
+    private final long startNanos;
+    private final long startUptimeMillis;
+
+    private long lastCycleNanos;
+    private long lastAllocatedBytes;
+    private long overruns = 0;
+    private boolean lastOverrun = false;
+    private long overrunsWithGC = 0;
+
+    private final LogChannel.LongChannel allocatedBytesChannel =
+            LogChannel.ofLong("GC/AllocatedBytes");
+    private final LogChannel.LongChannel countChannel = LogChannel.ofLong("GC/Count");
+    private final LogChannel.DoubleChannel pauseChannel = LogChannel.ofDouble("GC/PauseMS");
+    private final LogChannel.DoubleChannel heapUsedChannel = LogChannel.ofDouble("GC/HeapUsedMB");
+    private final LogChannel.DoubleChannel heapCommittedChannel =
+            LogChannel.ofDouble("GC/HeapCommittedMB");
+    private final LogChannel.DoubleChannel loopChannel = LogChannel.ofDouble("GC/LoopMS");
+    private final LogChannel.BooleanChannel overrunChannel = LogChannel.ofBoolean("GC/Overrun");
+    private final LogChannel.DoubleChannel overrunPauseChannel =
+            LogChannel.ofDouble("GC/OverrunPauseMS");
+    private final LogChannel.LongChannel overrunsChannel = LogChannel.ofLong("GC/Overruns");
+    private final LogChannel.LongChannel overrunsWithGCChannel =
+            LogChannel.ofLong("GC/OverrunsWithGC");
+
+    /**
+     * Must be created on the main robot thread, whose allocation is measured.
+     *
+     * @param overrunSeconds loops longer than this are flagged as overruns
+     */
+    public GCTelemetry(double overrunSeconds) {
+        this.overrunSeconds = overrunSeconds;
+
+        mainThreadId = Thread.currentThread().getId();
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threadBean = null;
+        }
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(this::onNotification, null, null);
+            }
+        }
+
+        startNanos = System.nanoTime();
+        startUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        lastCycleNanos = startNanos;
+        lastAllocatedBytes = getAllocatedBytes();
+    }
+
+    /** Called on the JVM's notification thread after each collection. */
+    private void onNotification(Notification notification, Object handback) {
+        String type = GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION;
+        if (!type.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // Concurrent cycles run alongside the application and do not pause it
+        if (info.getGcName().contains("Concurrent")) {
+            return;
+        }
+        GcInfo gcInfo = info.getGcInfo();
+        collections.add(new long[] {gcInfo.getStartTime(), gcInfo.getEndTime()});
+    }
+
+    /** Logs the loop since the last call. Call once at the start of every loop. */
+    public void periodic() {
+        long now = System.nanoTime();
+        double loopSeconds = (now - lastCycleNanos) / 1e9;
+        long loopStartUptime = toUptimeMillis(lastCycleNanos);
+        long loopEndUptime = toUptimeMillis(now);
+        lastCycleNanos = now;
+
+        long allocatedBytes = getAllocatedBytes();
+        allocatedBytesChannel.record(allocatedBytes - lastAllocatedBytes);
+        lastAllocatedBytes = allocatedBytes;
+
+        // Collections reported since the last loop
+        int count = 0;
+        long pauseMillis = 0;
+        long[] collection;
+        while ((collection = collections.poll()) != null) {
+            count++;
+            pauseMillis += collection[1] - collection[0];
+            recentStarts[recentNext] = collection[0];
+            recentEnds[recentNext] = collection[1];
+            recentNext = (recentNext + 1) % recentCapacity;
+        }
+        countChannel.record(count);
+        pauseChannel.record(pauseMillis);
+
+        Runtime runtime = Runtime.getRuntime();
+        heapUsedChannel.record((runtime.totalMemory() - runtime.freeMemory()) / 1e6);
+        heapCommittedChannel.record(runtime.totalMemory() / 1e6);
+
+        loopChannel.record(loopSeconds * 1000.0);
+        boolean overrun = loopSeconds > overrunSeconds;
+        long overrunPauseMillis = 0;
+        if (overrun) {
+            // Includes collections reported in earlier loops that overlapped this one
+            for (int i = 0; i < recentCapacity; i++) {
+                long start = Math.max(recentStarts[i], loopStartUptime);
+                long end = Math.min(recentEnds[i], loopEndUptime);
+                if (end > start) {
+                    overrunPauseMillis += end - start;
+                }
+            }
+            overruns++;
+            if (overrunPauseMillis > 0) {
+                overrunsWithGC++;
+            }
+        }
+        lastOverrun = overrun;
+        overrunChannel.record(overrun);
+        overrunPauseChannel.record(overrunPauseMillis);
+        overrunsChannel.record(overruns);
+        overrunsWithGCChannel.record(overrunsWithGC);
+    }
+
+    /** Returns whether the loop logged by the last {@link #periodic()} overran. */
+    public boolean wasOverrun() {
+        return lastOverrun;
+    }
+
+    private long toUptimeMillis(long nanos) {
+        return startUptimeMillis + (nanos - startNanos) / 1_000_000;
+    }
+
+    /** Returns the bytes the main thread has allocated so far, or 0 if the JVM can't tell. */
+    private long getAllocatedBytes() {
+        return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(mainThreadId);
+    }
+}
@@ -0,0 +1,170 @@
+package frc.lib.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * A typed AdvantageKit log key, created once when its owner is constructed so hot paths never build
+ * keys by concatenation. Primitive channels record without allocating.
+ *
+ * <p>AdvantageKit keeps a reference to logged arrays until its receivers have written them, after
+ * the loop ends. Array channels record the caller's array as is, so callers that reuse a scratch
+ * array must record a copy of it.
+ */
+public abstract class LogChannel {
+    private final String key;
+
+    private LogChannel(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static DoubleChannel ofDouble(String key) {
+        return new DoubleChannel(key);
+    }
+
+    public static LongChannel ofLong(String key) {
+        return new LongChannel(key);
+    }
+
+    public static BooleanChannel ofBoolean(String key) {
+        return new BooleanChannel(key);
+    }
+
+    public static StringChannel ofString(String key) {
+        return new StringChannel(key);
+    }
+
+    public static StringArrayChannel ofStringArray(String key) {
+        return new StringArrayChannel(key);
+    }
+
+    public static DoubleArrayChannel ofDoubleArray(String key) {
+        return new DoubleArrayChannel(key);
+    }
+
+    public static Pose2dChannel ofPose2d(String key) {
+        return new Pose2dChannel(key);
+    }
+
+    public static Pose3dChannel ofPose3d(String key) {
+        return new Pose3dChannel(key);
+    }
+
+    public static ModuleStatesChannel ofModuleStates(String key) {
+        return new ModuleStatesChannel(key);
+    }
+
+    public static InputsChannel ofInputs(String key) {
+        return new InputsChannel(key);
+    }
+
+    public static final class DoubleChannel extends LogChannel {
+        private DoubleChannel(String key) {
+            super(key);
+        }
+
+        public void record(double value) {
+            Logger.getInstance().recordOutput(getKey(), value);
+        }
+    }
+
+    public static final class LongChannel extends LogChannel {
+        private LongChannel(String key) {
+            super(key);
+        }
+
+        public void record(long value) {
+            Logger.getInstance().recordOutput(getKey(), value);
+        }
+    }
+
+    public static final class BooleanChannel extends LogChannel {
+        private BooleanChannel(String key) {
+            super(key);
+        }
+
+        public void record(boolean value) {
+            Logger.getInstance().recordOutput(getKey(), value);
+        }
+    }
+
+    public static final class StringChannel extends LogChannel {
+        private StringChannel(String key) {
+            super(key);
+        }
+
+        public void record(String value) {
+            Logger.getInstance().recordOutput(getKey(), value);
+        }
+    }
+
+    public static final class StringArrayChannel extends LogChannel {
+        private StringArrayChannel(String key) {
+            super(key);
+        }
+
+        /** Records the values, which must not be changed afterwards. */
+        public void record(String[] values) {
+            Logger.getInstance().recordOutput(getKey(), values);
+        }
+    }
+
+    public static final class DoubleArrayChannel extends LogChannel {
+        private DoubleArrayChannel(String key) {
+            super(key);
+        }
+
+        /** Records the values, which must not be changed afterwards. */
+        public void record(double[] values) {
+            Logger.getInstance().recordOutput(getKey(), values);
+        }
+    }
+
+    public static final class Pose2dChannel extends LogChannel {
+        private Pose2dChannel(String key) {
+            super(key);
+        }
+
+        public void record(Pose2d pose) {
+            Logger.getInstance().recordOutput(getKey(), pose);
+        }
+    }
+
+    public static final class Pose3dChannel extends LogChannel {
+        private Pose3dChannel(String key) {
+            super(key);
+        }
+
+        public void record(Pose3d pose) {
+            Logger.getInstance().recordOutput(getKey(), pose);
+        }
+    }
+
+    public static final class ModuleStatesChannel extends LogChannel {
+        private ModuleStatesChannel(String key) {
+            super(key);
+        }
+
+        public void record(SwerveModuleState[] states) {
+            Logger.getInstance().recordOutput(getKey(), states);
+        }
+    }
+
+    /** Key of a subsystem's inputs, which are read from the log instead of the IO in replay. */
+    public static final class InputsChannel extends LogChannel {
+        private InputsChannel(String key) {
+            super(key);
+        }
+
+        public void process(LoggableInputs inputs) {
+            Logger.getInstance().processInputs(getKey(), inputs);
+        }
+    }
+}
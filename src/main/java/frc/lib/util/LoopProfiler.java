@@ -0,0 +1,182 @@
+package frc.lib.util;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.util.HashMap;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Times sections of the robot loop, such as each subsystem's periodic() and each scheduled
+ * command's execute(), and the logger's flush, so loop overruns can be attributed. Every section
+ * logs its time each loop under "Profiler/<name>MS", and the P50, P95 and P99 of its recent loops
+ * once a second.
+ *
+ * <p>Sections are registered once and write into preallocated slots, so timing does not allocate.
+ * Only meant to be used from the main robot thread.
+ */
+public class LoopProfiler {
+    private static LoopProfiler instance = null;
+
+    private static final int maxSections = 64;
+    // Loops the percentiles are computed over
+    private static final int window = 250;
+
+    /** A timed part of the loop, registered once by its owner. Also traced by {@link LoopTracer}. */
+    public final class Section {
+        private final int index;
+        private final LoopTracer.Span span;
+        private long startNanos = 0;
+
+        private Section(int index, LoopTracer.Span span) {
+            this.index = index;
+            this.span = span;
+        }
+
+        public void start() {
+            startNanos = System.nanoTime();
+        }
+
+        public void stop() {
+            long now = System.nanoTime();
+            add(index, now - startNanos);
+            span.record(startNanos, now);
+            lastMarkNanos = now;
+        }
+    }
+
+    private int sectionCount = 0;
+    private final long[] elapsedNanos = new long[maxSections];
+    private final boolean[] ran = new boolean[maxSections];
+    private final RollingPercentiles[] percentiles = new RollingPercentiles[maxSections];
+    private final LogChannel.DoubleChannel[] elapsedChannels =
+            new LogChannel.DoubleChannel[maxSections];
+    // P50, P95 and P99 of each section
+    private final LogChannel.DoubleChannel[][] percentileChannels =
+            new LogChannel.DoubleChannel[maxSections][3];
+
+    // Sections registered past maxSections share this one
+    private final Section otherSection;
+
+    // Commands are timed from the last section or scheduler event to the end of their execute()
+    private final HashMap<String, Section> commandSections = new HashMap<>();
+    private long lastMarkNanos = 0;
+
+    // The logger's flush, timed in real microseconds between cycles once enabled
+    private Section logFlushSection = null;
+    private long periodMicros = 0;
+    private long cycleStartMicros = 0;
+    private long cycleEndMicros = 0;
+
+    public static LoopProfiler getInstance() {
+        if (instance == null) {
+            instance = new LoopProfiler();
+        }
+        return instance;
+    }
+
+    private LoopProfiler() {
+        otherSection = register("Other");
+    }
+
+    /** Registers a section, logged under the given name. */
+    public Section section(String name) {
+        return sectionCount < maxSections ? register(name) : otherSection;
+    }
+
+    private Section register(String name) {
+        int index = sectionCount++;
+        percentiles[index] = new RollingPercentiles(window);
+        String key = "Profiler/" + name;
+        elapsedChannels[index] = LogChannel.ofDouble(key + "MS");
+        percentileChannels[index][0] = LogChannel.ofDouble(key + "/P50");
+        percentileChannels[index][1] = LogChannel.ofDouble(key + "/P95");
+        percentileChannels[index][2] = LogChannel.ofDouble(key + "/P99");
+        return new Section(index, LoopTracer.getInstance().span(name));
+    }
+
+    private void add(int index, long nanos) {
+        elapsedNanos[index] += nanos;
+        ran[index] = true;
+    }
+
+    /**
+     * Times the execute() of every command the scheduler runs. The scheduler only reports when
+     * execute() returns, so each command is timed from the previous section or scheduler event,
+     * which also counts the previous command's isFinished() and any button polling before it.
+     */
+    public void profileCommands(CommandScheduler scheduler) {
+        scheduler.onCommandInitialize(command -> lastMarkNanos = System.nanoTime());
+        scheduler.onCommandExecute(this::commandExecuted);
+        scheduler.onCommandFinish(command -> lastMarkNanos = System.nanoTime());
+        scheduler.onCommandInterrupt(command -> lastMarkNanos = System.nanoTime());
+    }
+
+    private void commandExecuted(Command command) {
+        long now = System.nanoTime();
+        String name = command.getName();
+        Section section = commandSections.get(name);
+        if (section == null) {
+            section = section("Commands/" + name);
+            commandSections.put(name, section);
+        }
+        add(section.index, now - lastMarkNanos);
+        section.span.record(lastMarkNanos, now);
+        lastMarkNanos = now;
+    }
+
+    /**
+     * Times the logger's flush, which LoggedRobot runs after robotPeriodic() returns and which
+     * queues the cycle to the receivers. It is logged the next loop under "Profiler/LogFlushMS".
+     * Not for replay, where cycles are not timed in real time.
+     *
+     * <p>The flush is timed from the end of the last cycle to the start of this one, minus the
+     * notifier wait until this cycle was due. A flush that finishes before then is hidden by the
+     * wait, so only the time it delays the next cycle is seen, which is what an overrun is
+     * attributed to. The dashboard updates LoggedRobot runs after robotPeriodic() are included.
+     *
+     * @param periodSeconds the robot's loop period
+     */
+    public void profileLogFlush(double periodSeconds) {
+        logFlushSection = section("LogFlush");
+        periodMicros = (long) (periodSeconds * 1e6);
+    }
+
+    /** Starts a loop. Call before the scheduler runs. */
+    public void beginCycle() {
+        lastMarkNanos = System.nanoTime();
+
+        if (logFlushSection != null) {
+            // The cycle's timestamp is taken when it starts, before the logger's periodic
+            long startMicros = Logger.getInstance().getTimestamp();
+            if (cycleEndMicros != 0) {
+                long dueMicros = Math.max(cycleEndMicros, cycleStartMicros + periodMicros);
+                add(logFlushSection.index, Math.max(0, startMicros - dueMicros) * 1000);
+            }
+            cycleStartMicros = startMicros;
+        }
+    }
+
+    /** Logs every section's time this loop and resets them. Call after the scheduler runs. */
+    public void endCycle() {
+        if (logFlushSection != null) {
+            cycleEndMicros = Logger.getInstance().getRealTimestamp();
+        }
+
+        boolean logPercentiles = CachedSignal.getCycle() % SampleTier.SLOW.periodCycles == 0;
+        for (int i = 0; i < sectionCount; i++) {
+            double milliseconds = elapsedNanos[i] / 1e6;
+            if (ran[i]) {
+                percentiles[i].add(milliseconds);
+            }
+            elapsedChannels[i].record(milliseconds);
+            if (logPercentiles && percentiles[i].size() > 0) {
+                percentileChannels[i][0].record(percentiles[i].getPercentile(50));
+                percentileChannels[i][1].record(percentiles[i].getPercentile(95));
+                percentileChannels[i][2].record(percentiles[i].getPercentile(99));
+            }
+
+            elapsedNanos[i] = 0;
+            ran[i] = false;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package frc.lib.util;
+
+import edu.wpi.first.networktables.BooleanEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records when each phase of the loop and the background threads ran, so their ordering can be
+ * inspected. Spans are written into a preallocated ring buffer from any thread, and the buffer can
+ * be dumped as Chrome trace-event JSON, which opens in chrome://tracing or ui.perfetto.dev.
+ *
+ * <p>Opt-in, when disabled recording a span returns immediately. Dumps are written on a background
+ * thread from a copy of the buffer, and a dump requested while one is being written is skipped.
+ */
+public class LoopTracer {
+    private static LoopTracer instance = null;
+
+    private static final int maxNames = 256;
+    // Overruns often come in bursts, only the first of a burst is dumped
+    private static final double minOverrunDumpIntervalSeconds = 10.0;
+
+    /** A named span, registered once by its owner and only recorded from one thread at a time. */
+    public final class Span {
+        private final int nameId;
+        private long startNanos = 0;
+
+        private Span(int nameId) {
+            this.nameId = nameId;
+        }
+
+        public void begin() {
+            if (enabled) {
+                startNanos = System.nanoTime();
+            }
+        }
+
+        public void end() {
+            if (enabled) {
+                LoopTracer.this.record(nameId, startNanos, System.nanoTime());
+            }
+        }
+
+        /** Records the span as having run between two {@link System#nanoTime()} readings. */
+        public void record(long startNanos, long endNanos) {
+            if (enabled) {
+                LoopTracer.this.record(nameId, startNanos, endNanos);
+            }
+        }
+    }
+
+    // The buffers are only allocated once enabled
+    private volatile boolean enabled = false;
+    private String folder;
+    private int capacity;
+    private final long originNanos = System.nanoTime();
+
+    private final String[] names = new String[maxNames];
+    private int nameCount = 0;
+
+    private final AtomicLong next = new AtomicLong();
+    private int[] nameIds;
+    private long[] starts;
+    private long[] ends;
+    private long[] threadIds;
+
+    // Copy of the buffer being dumped
+    private final AtomicBoolean dumping = new AtomicBoolean();
+    private long lastOverrunDumpNanos = 0;
+    private BooleanEntry dumpRequest;
+    private int[] dumpNameIds;
+    private long[] dumpStarts;
+    private long[] dumpEnds;
+    private long[] dumpThreadIds;
+
+    public static LoopTracer getInstance() {
+        if (instance == null) {
+            instance = new LoopTracer();
+        }
+        return instance;
+    }
+
+    private LoopTracer() {}
+
+    /**
+     * Starts recording spans. Spans can be registered before, but are only recorded after this.
+     *
+     * @param folder folder dumps are written to
+     * @param capacity most recent spans kept
+     */
+    public void enable(String folder, int capacity) {
+        if (enabled) {
+            return;
+        }
+        this.folder = folder;
+        this.capacity = capacity;
+        nameIds = new int[capacity];
+        starts = new long[capacity];
+        ends = new long[capacity];
+        threadIds = new long[capacity];
+        dumpNameIds = new int[capacity];
+        dumpStarts = new long[capacity];
+        dumpEnds = new long[capacity];
+        dumpThreadIds = new long[capacity];
+
+        dumpRequest = NetworkTableInstance.getDefault().getBooleanTopic("/Tracer/Dump").getEntry(false);
+        dumpRequest.set(false);
+        enabled = true;
+    }
+
+    /**
+     * Dumps the buffer when requested from the dashboard through /Tracer/Dump, or after a loop
+     * overran. Call once every loop from the main robot thread.
+     *
+     * @param overrun whether the last loop overran
+     */
+    public void periodic(boolean overrun) {
+        if (!enabled) {
+            return;
+        }
+        if (dumpRequest.get()) {
+            dumpRequest.set(false);
+            dump("request");
+        } else if (overrun) {
+            long now = System.nanoTime();
+            if (lastOverrunDumpNanos == 0
+                    || (now - lastOverrunDumpNanos) / 1e9 > minOverrunDumpIntervalSeconds) {
+                lastOverrunDumpNanos = now;
+                dump("overrun");
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Registers a span, shown under the given name. */
+    public synchronized Span span(String name) {
+        int nameId = Math.min(nameCount, maxNames - 1);
+        if (nameCount < maxNames) {
+            names[nameCount++] = name;
+        }
+        return new Span(nameId);
+    }
+
+    private void record(int nameId, long startNanos, long endNanos) {
+        int i = (int) (next.getAndIncrement() % capacity);
+        nameIds[i] = nameId;
+        starts[i] = startNanos;
+        ends[i] = endNanos;
+        threadIds[i] = Thread.currentThread().getId();
+    }
+
+    /**
+     * Copies the buffer and writes it to a new file in the trace folder on a background thread.
+     * Spans being recorded while the buffer is copied may be torn.
+     *
+     * @param reason added to the file name, such as "overrun"
+     */
+    public void dump(String reason) {
+        if (!enabled || !dumping.compareAndSet(false, true)) {
+            return;
+        }
+        long end = next.get();
+        int count = (int) Math.min(end, capacity);
+        for (int j = 0; j < count; j++) {
+            int i = (int) ((end - count + j) % capacity);
+            dumpNameIds[j] = nameIds[i];
+            dumpStarts[j] = starts[i];
+            dumpEnds[j] = ends[i];
+            dumpThreadIds[j] = threadIds[i];
+        }
+
+        Thread writer =
+                new Thread(
+                        () -> {
+                            try {
+                                write(count, reason);
+                            } catch (IOException e) {
+                                DriverStation.reportError(
+                                        "Failed to write trace: " + e.getMessage(), e.getStackTrace());
+                            } finally {
+                                dumping.set(false);
+                            }
+                        },
+                        "LoopTracer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void write(int count, String reason) throws IOException {
+        Files.createDirectories(Paths.get(folder));
+        String time = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        File file = Paths.get(folder, "trace_" + time + "_" + reason + ".json").toFile();
+
+        Map<Long, String> threadNames = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            threadNames.put(thread.getId(), thread.getName());
+        }
+
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.print("{\"traceEvents\":[");
+            String separator = "\n";
+            for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+                writer.printf(
+                        Locale.ROOT,
+                        "%s{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,"
+                                + "\"args\":{\"name\":\"%s\"}}",
+                        separator,
+                        thread.getKey(),
+                        escape(thread.getValue()));
+                separator = ",\n";
+            }
+            // Times in microseconds since the tracer was created
+            for (int j = 0; j < count; j++) {
+                writer.printf(
+                        Locale.ROOT,
+                        "%s{\"name\":\"%s\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,"
+                                + "\"ts\":%.3f,\"dur\":%.3f}",
+                        separator,
+                        escape(names[dumpNameIds[j]]),
+                        dumpThreadIds[j],
+                        (dumpStarts[j] - originNanos) / 1e3,
+                        (dumpEnds[j] - dumpStarts[j]) / 1e3);
+                separator = ",\n";
+            }
+            writer.println("\n]}");
+        }
+    }
+
+    private static String escape(String string) {
+        return string.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
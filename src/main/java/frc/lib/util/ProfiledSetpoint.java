@@ -0,0 +1,96 @@
+package frc.lib.util;
+
+/**
+ * The setpoint of a trapezoid motion profile toward a goal at rest, stepped in place every loop.
+ * Each step matches WPILib's TrapezoidProfile rebuilt from the last setpoint, so the goal can
+ * change at any time, without allocating a profile and states every loop.
+ */
+public class ProfiledSetpoint {
+    private final double maxVelocity;
+    private final double maxAcceleration;
+
+    private double position = 0.0;
+    private double velocity = 0.0;
+
+    /**
+     * @param maxVelocity largest speed in units per second
+     * @param maxAcceleration largest acceleration in units per second squared
+     */
+    public ProfiledSetpoint(double maxVelocity, double maxAcceleration) {
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+    }
+
+    /** Restarts the profile from the given state. */
+    public void reset(double position, double velocity) {
+        this.position = position;
+        this.velocity = velocity;
+    }
+
+    /**
+     * Moves the setpoint one step along the profile from the current setpoint to the goal.
+     *
+     * @param goal position to come to rest at
+     * @param dtSeconds time to step forward
+     */
+    public void step(double goal, double dtSeconds) {
+        // Solved as if moving in the positive direction
+        double direction = position > goal ? -1.0 : 1.0;
+        double start = position * direction;
+        double end = goal * direction;
+        double startVelocity = Math.min(velocity * direction, maxVelocity);
+
+        double cutoffBegin = startVelocity / maxAcceleration;
+        double cutoffDistBegin = cutoffBegin * cutoffBegin * maxAcceleration / 2.0;
+        double fullTrapezoidDist = cutoffDistBegin + (end - start);
+
+        double accelerationTime = maxVelocity / maxAcceleration;
+        double fullSpeedDist =
+                fullTrapezoidDist - accelerationTime * accelerationTime * maxAcceleration;
+        if (fullSpeedDist < 0) {
+            accelerationTime = Math.sqrt(fullTrapezoidDist / maxAcceleration);
+            fullSpeedDist = 0;
+        }
+
+        double endAccel = accelerationTime - cutoffBegin;
+        double endFullSpeed = endAccel + fullSpeedDist / maxVelocity;
+        double endDecel = endFullSpeed + accelerationTime;
+
+        double t = dtSeconds;
+        double nextPosition;
+        double nextVelocity;
+        if (t < endAccel) {
+            nextVelocity = startVelocity + t * maxAcceleration;
+            nextPosition = start + (startVelocity + t * maxAcceleration / 2.0) * t;
+        } else if (t < endFullSpeed) {
+            nextVelocity = maxVelocity;
+            nextPosition =
+                    start
+                            + (startVelocity + endAccel * maxAcceleration / 2.0) * endAccel
+                            + maxVelocity * (t - endAccel);
+        } else if (t <= endDecel) {
+            double timeLeft = endDecel - t;
+            nextVelocity = timeLeft * maxAcceleration;
+            nextPosition = end - (timeLeft * maxAcceleration / 2.0) * timeLeft;
+        } else {
+            nextVelocity = 0.0;
+            nextPosition = end;
+        }
+
+        position = nextPosition * direction;
+        velocity = nextVelocity * direction;
+    }
+
+    public double getPosition() {
+        return position;
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /** Returns whether the setpoint has come to rest at the goal. */
+    public boolean atGoal(double goal) {
+        return position == goal && velocity == 0.0;
+    }
+}
@@ -0,0 +1,56 @@
+package frc.lib.util;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles of the most recent samples of a value. Samples are kept in a fixed size ring buffer
+ * and only sorted when a percentile is requested after new samples were added, so neither adding
+ * nor reading allocates.
+ */
+public class RollingPercentiles {
+    private final double[] samples;
+    private final double[] sorted;
+    private int size = 0;
+    private int next = 0;
+    private boolean sortedValid = true;
+
+    /**
+     * @param window number of most recent samples the percentiles are computed over
+     */
+    public RollingPercentiles(int window) {
+        samples = new double[window];
+        sorted = new double[window];
+    }
+
+    /** Adds a sample, replacing the oldest one when the window is full. */
+    public void add(double value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        sortedValid = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the nearest rank percentile of the samples in the window.
+     *
+     * @param percentile between 0 and 100
+     * @return the percentile, or 0 if there are no samples
+     */
+    public double getPercentile(double percentile) {
+        if (size == 0) {
+            return 0.0;
+        }
+        if (!sortedValid) {
+            System.arraycopy(samples, 0, sorted, 0, size);
+            Arrays.sort(sorted, 0, size);
+            sortedValid = true;
+        }
+
+        int rank = (int) Math.ceil(percentile / 100.0 * size);
+        return sorted[Math.max(0, Math.min(size - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,29 @@
+package frc.lib.util;
+
+import org.littletonrobotics.junction.LoggedRobot;
+
+/**
+ * How often a group of inputs is read and logged. Slow changing values such as motor temperatures
+ * do not need to be sampled every loop.
+ */
+public enum SampleTier {
+    /** Every loop. */
+    FAST(0.0),
+    /** 10 Hz. */
+    MEDIUM(10.0),
+    /** 1 Hz. */
+    SLOW(1.0);
+
+    /** Loops between samples. */
+    public final int periodCycles;
+
+    /**
+     * @param frequency samples per second, or 0 to sample every loop
+     */
+    private SampleTier(double frequency) {
+        periodCycles =
+                frequency <= 0.0
+                        ? 1
+                        : Math.max(1, (int) Math.round(1.0 / (frequency * LoggedRobot.defaultPeriodSecs)));
+    }
+}
@@ -0,0 +1,49 @@
+package frc.lib.util;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.RelativeEncoder;
+
+/**
+ * Reads the status values of a Spark Max at most once per loop using {@link CachedSignal}. Applied
+ * voltage is computed from the shared battery voltage instead of reading each controller's bus
+ * voltage.
+ */
+public class SparkMaxStatusReader {
+    private final CachedSignal appliedOutput;
+    private final CachedSignal outputCurrent;
+    private final CachedSignal motorTemperature;
+    private final CachedSignal position;
+    private final CachedSignal velocity;
+
+    /**
+     * @param motor the Spark Max to read from
+     * @param encoder the encoder position and velocity are read from, usually motor.getEncoder()
+     */
+    public SparkMaxStatusReader(CANSparkMax motor, RelativeEncoder encoder) {
+        appliedOutput = new CachedSignal(motor::getAppliedOutput);
+        outputCurrent = new CachedSignal(motor::getOutputCurrent);
+        motorTemperature = new CachedSignal(motor::getMotorTemperature);
+        position = new CachedSignal(encoder::getPosition);
+        velocity = new CachedSignal(encoder::getVelocity);
+    }
+
+    public double getAppliedVolts() {
+        return appliedOutput.get() * CachedSignal.getBatteryVoltage();
+    }
+
+    public double getOutputCurrent() {
+        return outputCurrent.get();
+    }
+
+    public double getMotorTemperature() {
+        return motorTemperature.get();
+    }
+
+    public double getPosition() {
+        return position.get();
+    }
+
+    public double getVelocity() {
+        return velocity.get();
+    }
+}
@@ -0,0 +1,48 @@
+package frc.lib.util;
+
+import java.util.function.Consumer;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * Inputs that are read from the IO and logged only on the loops their {@link SampleTier} is due,
+ * keeping their last values in between. Whether a tier is due only depends on the loop count, so
+ * replay processes the inputs on the same loops and reads back the same values.
+ *
+ * <p>Each instance is offset by the number of instances created before it, so inputs sharing a tier
+ * are spread over the loops instead of all being read in the same one.
+ */
+public class TieredInputs<T extends LoggableInputs> {
+    private static int instances = 0;
+
+    private final T inputs;
+    private final Consumer<T> updater;
+    private final SampleTier tier;
+    private final int phase;
+    private final LogChannel.InputsChannel channel;
+
+    /**
+     * @param key key the inputs are logged under
+     * @param tier how often the inputs are sampled
+     * @param inputs the inputs, read with their defaults until first sampled
+     * @param updater reads the inputs from the IO, usually a method of the IO
+     */
+    public TieredInputs(String key, SampleTier tier, T inputs, Consumer<T> updater) {
+        this.inputs = inputs;
+        this.updater = updater;
+        this.tier = tier;
+        phase = instances++ % tier.periodCycles;
+        channel = LogChannel.ofInputs(key);
+    }
+
+    /** Reads and logs the inputs if their tier is due this loop. Call once every loop. */
+    public void periodic() {
+        if (CachedSignal.getCycle() % tier.periodCycles == phase) {
+            updater.accept(inputs);
+            channel.process(inputs);
+        }
+    }
+
+    public T get() {
+        return inputs;
+    }
+}
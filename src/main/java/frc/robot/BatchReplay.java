@@ -0,0 +1,157 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays every log in a folder in parallel, each in its own robot JVM since AdvantageKit's logger
+ * and the HAL are global to a process. Each replay writes its "_sim" log next to the original, as a
+ * single replay does, and its console output to a "_replay.txt" file. A summary of every replay's
+ * runtime and the overall throughput is printed and written to replay_summary.csv in the folder.
+ *
+ * <p>Run with ./gradlew replayBatch -PreplayFolder=path/to/logs [-PreplayThreads=N].
+ */
+public final class BatchReplay {
+    /** System property the robot's mode is read from, see {@link Constants#getMode()}. */
+    public static final String modeProperty = "frc.robot.mode";
+
+    // Read by AdvantageKit's LogFileUtil.findReplayLog()
+    private static final String logPathVariable = "AKIT_LOG_PATH";
+
+    private static class Result {
+        final Path log;
+        final long bytes;
+        final int exitCode;
+        final double seconds;
+
+        Result(Path log, long bytes, int exitCode, double seconds) {
+            this.log = log;
+            this.bytes = bytes;
+            this.exitCode = exitCode;
+            this.seconds = seconds;
+        }
+    }
+
+    private BatchReplay() {}
+
+    /**
+     * @param args the folder of logs, then optionally how many to replay at once, which defaults to
+     *     the number of processors
+     */
+    public static void main(String... args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: BatchReplay <log folder> [threads]");
+            System.exit(1);
+        }
+        Path folder = Paths.get(args[0]).toAbsolutePath();
+        int threads =
+                args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        List<Path> logs;
+        try (Stream<Path> files = Files.list(folder)) {
+            logs =
+                    files
+                            .filter(
+                                    file -> {
+                                        String name = file.getFileName().toString();
+                                        return name.endsWith(".wpilog") && !name.endsWith("_sim.wpilog");
+                                    })
+                            .sorted()
+                            .collect(Collectors.toList());
+        }
+        System.out.println("Replaying " + logs.size() + " logs, " + threads + " at a time");
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Path log : logs) {
+            futures.add(executor.submit(() -> replay(log)));
+        }
+        List<Result> results = new ArrayList<>();
+        for (Future<Result> future : futures) {
+            Result result = future.get();
+            results.add(result);
+            System.out.printf(
+                    "%s: %s in %.1f s%n",
+                    result.log.getFileName(),
+                    result.exitCode == 0 ? "done" : "failed (exit " + result.exitCode + ")",
+                    result.seconds);
+        }
+        executor.shutdown();
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+        writeSummary(folder.resolve("replay_summary.csv"), results, wallSeconds);
+    }
+
+    /** Replays one log in a new robot JVM with the same classpath and natives as this one. */
+    private static Result replay(Path log) throws IOException, InterruptedException {
+        String java =
+                ProcessHandle.current()
+                        .info()
+                        .command()
+                        .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        ProcessBuilder builder =
+                new ProcessBuilder(
+                        java,
+                        "-cp",
+                        System.getProperty("java.class.path"),
+                        "-Djava.library.path=" + System.getProperty("java.library.path"),
+                        "-D" + modeProperty + "=" + Constants.Mode.REPLAY.name(),
+                        Main.class.getName());
+        builder.environment().put(logPathVariable, log.toString());
+        builder.redirectErrorStream(true);
+        String name = log.getFileName().toString();
+        File output =
+                log.resolveSibling(name.substring(0, name.length() - ".wpilog".length()) + "_replay.txt")
+                        .toFile();
+        builder.redirectOutput(output);
+
+        long start = System.nanoTime();
+        int exitCode = builder.start().waitFor();
+        return new Result(log, Files.size(log), exitCode, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void writeSummary(Path file, List<Result> results, double wallSeconds)
+            throws IOException {
+        double totalMegabytes = 0.0;
+        double totalSeconds = 0.0;
+        int failed = 0;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.println("log,megabytes,exit_code,seconds");
+            for (Result result : results) {
+                double megabytes = result.bytes / 1e6;
+                writer.printf(
+                        "%s,%.2f,%d,%.2f%n",
+                        result.log.getFileName(), megabytes, result.exitCode, result.seconds);
+                totalMegabytes += megabytes;
+                totalSeconds += result.seconds;
+                if (result.exitCode != 0) {
+                    failed++;
+                }
+            }
+        }
+
+        System.out.printf(
+                "Replayed %d logs (%d failed, %.1f MB) in %.1f s: %.1f logs/min, %.2f MB/s, %.1fx"
+                        + " speedup over replaying one at a time%n",
+                results.size(),
+                failed,
+                totalMegabytes,
+                wallSeconds,
+                results.size() / wallSeconds * 60.0,
+                totalMegabytes / wallSeconds,
+                totalSeconds / wallSeconds);
+        System.out.println("Summary written to " + file);
+    }
+}
@@ -9,13 +9,22 @@ import edu.wpi.first.wpilibj.RobotBase;
  */
 public final class Constants {
 
+    /*
+     * Mode when not running on the robot, REPLAY unless SIM is asked for with
+     * -Dfrc.robot.mode=SIM (BatchReplay.modeProperty)
+     */
+    private static final Mode desktopMode =
+            Mode.valueOf(System.getProperty(BatchReplay.modeProperty, Mode.REPLAY.name()));
+
     public static Mode getMode() {
-        return RobotBase.isReal() ? Mode.REAL : Mode.REPLAY;
+        return RobotBase.isReal() ? Mode.REAL : desktopMode;
     }
 
     public enum Mode {
-        /** Replaying from a log file. */
+        /** Running on the real robot. */
         REAL,
+        /** Running a physics simulator. */
+        SIM,
         /** Replaying from a log file. */
         REPLAY
     }
@@ -123,6 +132,31 @@ public final class Constants {
         }
     }
 
+    public static final class Logging {
+        public static final String usbFolder = "/media/sda1/";
+        /* RAM backed on the roboRIO, the log must be copied off before the robot is powered off */
+        public static final String spillFolder = "/tmp/logs/";
+
+        public static final double spillAfterStallSeconds = 0.5;
+        /* About 10 seconds of cycles */
+        public static final int maxPendingCycles = 500;
+        public static final long maxPendingBytes = 32 * 1024 * 1024;
+
+        /* Loops longer than this are flagged as overruns, with the GC pauses that overlapped them */
+        public static final double overrunSeconds = 0.022;
+
+        /* Records loop timelines, dumped as Chrome trace JSON on overruns or from /Tracer/Dump */
+        public static final boolean traceEnabled = false;
+        public static final String traceFolder = "/home/lvuser/traces/";
+        /* Spans kept, a few seconds of loops */
+        public static final int traceCapacity = 8192;
+    }
+
+    public static final class CANBus {
+        /* Largest planned fraction of the bus before a warning is reported */
+        public static final double maxUtilization = 0.6;
+    }
+
     public static final class Autonomous {
         public static final PathConstraints constraints = new PathConstraints(1, 1);
 
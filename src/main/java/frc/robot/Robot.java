@@ -4,9 +4,16 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import frc.lib.config.CTREConfigs;
+import frc.lib.util.BufferedLogWriter;
+import frc.lib.util.CachedSignal;
+import frc.lib.util.GCTelemetry;
+import frc.lib.util.LogChannel;
+import frc.lib.util.LoopProfiler;
+import frc.lib.util.LoopTracer;
 import frc.robot.Constants.Mode;
 import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
@@ -28,6 +35,23 @@ public class Robot extends LoggedRobot {
     private Command m_autonomousCommand;
     private RobotContainer m_robotContainer;
 
+    private final LoopProfiler.Section schedulerSection =
+            LoopProfiler.getInstance().section("CommandScheduler");
+
+    private GCTelemetry gcTelemetry;
+    private BufferedLogWriter logWriter;
+    private final LogChannel.LongChannel logQueueDepthChannel =
+            LogChannel.ofLong("Logging/QueueDepth");
+    private final LogChannel.LongChannel logPendingBytesChannel =
+            LogChannel.ofLong("Logging/PendingBytes");
+    private final LogChannel.DoubleChannel logStallChannel = LogChannel.ofDouble("Logging/StallMS");
+    private final LogChannel.DoubleChannel logMaxStallChannel =
+            LogChannel.ofDouble("Logging/MaxStallMS");
+    private final LogChannel.LongChannel logDroppedCyclesChannel =
+            LogChannel.ofLong("Logging/DroppedCycles");
+    private final LogChannel.BooleanChannel logSpillingChannel =
+            LogChannel.ofBoolean("Logging/Spilling");
+
     /**
      * This function is run when the robot is first started up and should be used for any
      * initialization code.
@@ -42,9 +66,19 @@ public class Robot extends LoggedRobot {
         logger.recordMetadata("GitDate", BuildConstants.GIT_DATE);
         logger.recordMetadata("GitBranch", BuildConstants.GIT_BRANCH);
         if (Constants.getMode() == Mode.REAL) {
-            logger.addDataReceiver(new WPILOGWriter("/media/sda1/")); // Log to a USB stick
+            // Log to a USB stick, buffered so a slow stick can't stall the loop
+            logWriter =
+                    new BufferedLogWriter(
+                            Constants.Logging.usbFolder,
+                            Constants.Logging.spillFolder,
+                            Constants.Logging.spillAfterStallSeconds,
+                            Constants.Logging.maxPendingCycles,
+                            Constants.Logging.maxPendingBytes);
+            logger.addDataReceiver(logWriter);
             logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
             LoggedPowerDistribution.getInstance();
+        } else if (Constants.getMode() == Mode.SIM) {
+            logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
         } else if (Constants.getMode() == Mode.REPLAY) {
             setUseTiming(false); // Run as fast as possible
             String logPath = LogFileUtil.findReplayLog();
@@ -56,11 +90,24 @@ public class Robot extends LoggedRobot {
         // Timestamps" in the "Understanding Data Flow" page
         logger.start(); // Start logging! No more data receivers, replay sources, or metadata values may
         // be added.
+        if (Constants.Logging.traceEnabled) {
+            LoopTracer.getInstance()
+                    .enable(
+                            RobotBase.isReal() ? Constants.Logging.traceFolder : "traces/",
+                            Constants.Logging.traceCapacity);
+        }
+
         ctreConfigs = new CTREConfigs();
         // Instantiate our RobotContainer. This will perform all our button bindings,
         // and put our
         // autonomous chooser on the dashboard.
         m_robotContainer = new RobotContainer();
+
+        LoopProfiler.getInstance().profileCommands(CommandScheduler.getInstance());
+        if (Constants.getMode() != Mode.REPLAY) {
+            LoopProfiler.getInstance().profileLogFlush(defaultPeriodSecs);
+        }
+        gcTelemetry = new GCTelemetry(Constants.Logging.overrunSeconds);
     }
 
     /**
@@ -72,6 +119,12 @@ public class Robot extends LoggedRobot {
      */
     @Override
     public void robotPeriodic() {
+        // Invalidate last loop's cached device reads before any subsystem reads its sensors
+        CachedSignal.beginCycle();
+        LoopProfiler.getInstance().beginCycle();
+        gcTelemetry.periodic();
+        LoopTracer.getInstance().periodic(gcTelemetry.wasOverrun());
+
         // Runs the Scheduler. This is responsible for polling buttons, adding
         // newly-scheduled
         // commands, running already-scheduled commands, removing finished or
@@ -79,7 +132,27 @@ public class Robot extends LoggedRobot {
         // and running subsystem periodic() methods. This must be called from the
         // robot's periodic
         // block in order for anything in the Command-based framework to work.
+        schedulerSection.start();
         CommandScheduler.getInstance().run();
+        schedulerSection.stop();
+        LoopProfiler.getInstance().endCycle();
+
+        if (logWriter != null) {
+            logQueueDepthChannel.record(logWriter.getQueueDepth());
+            logPendingBytesChannel.record(logWriter.getPendingBytes());
+            logStallChannel.record(logWriter.getStallSeconds() * 1000.0);
+            logMaxStallChannel.record(logWriter.getMaxStallSeconds() * 1000.0);
+            logDroppedCyclesChannel.record(logWriter.getDroppedCycles());
+            logSpillingChannel.record(logWriter.isSpilling());
+        }
+    }
+
+    @Override
+    public void simulationPeriodic() {
+        // Also called in replay, where the simulated pose isn't needed
+        if (Constants.getMode() == Mode.SIM) {
+            m_robotContainer.simulationPeriodic();
+        }
     }
 
     /** This function is called once each time the robot enters Disabled mode. */
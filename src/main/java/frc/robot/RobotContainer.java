@@ -63,7 +63,10 @@ import com.pathplanner.lib.PathPlannerTrajectory;
 import com.pathplanner.lib.auto.PIDConstants;
 import com.pathplanner.lib.auto.SwerveAutoBuilder;
 import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -73,6 +76,8 @@ import edu.wpi.first.wpilibj2.command.SelectCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
+import frc.lib.util.CANBusPlanner;
+import frc.lib.util.LogChannel;
 import frc.robot.Constants.GamePiece;
 import frc.robot.Constants.Position;
 import frc.robot.autos.AutoBalancing;
@@ -97,6 +102,7 @@ import frc.robot.subsystems.swerve.Swerve;
 import frc.robot.subsystems.swerve.SwerveConstants;
 import frc.robot.subsystems.vision.CameraIO;
 import frc.robot.subsystems.vision.CameraIOPhoton;
+import frc.robot.subsystems.vision.CameraIOSim;
 import frc.robot.subsystems.vision.Vision;
 import frc.robot.subsystems.vision.VisionConstants;
 import frc.robot.subsystems.wrist.Wrist;
@@ -105,6 +111,7 @@ import frc.robot.subsystems.wrist.WristIO;
 import frc.robot.subsystems.wrist.WristIOSparkMax;
 import java.util.HashMap;
 import java.util.Map;
+import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.networktables.LoggedDashboardChooser;
 
@@ -131,7 +138,15 @@ public class RobotContainer {
     private final Wrist s_Wrist;
     private final LEDs s_LEDs = new LEDs();
 
-    public static GamePiece gamePiece = GamePiece.CONE;
+    private final RobotStatePublisher robotStatePublisher;
+
+    /* Simulated robot pose the cameras render from, see simulationPeriodic() */
+    private Pose2d simulatedPose = new Pose2d();
+    private final LogChannel.Pose2dChannel simulatedPoseChannel =
+            LogChannel.ofPose2d("Sim/GroundTruthPose");
+
+    /* Operator selected game piece, also published in the RobotState snapshot */
+    private GamePiece selectedGamePiece = GamePiece.CONE;
 
     /* Autonomous Mode Chooser */
     private final LoggedDashboardChooser<PathPlannerTrajectory> autoChooser =
@@ -197,6 +212,35 @@ public class RobotContainer {
                 s_Intake = new Intake(new IntakeIOSparkMax());
                 s_Wrist = new Wrist(new WristIOSparkMax());
                 s_Elevator = new Elevator(new ElevatorIOSparkMax());
+
+                // Every IO implementation has registered its devices, apply their frame periods
+                CANBusPlanner.getInstance().configure(Constants.CANBus.maxUtilization);
+                break;
+
+                // Simulated robot, render the cameras from a pose that follows the drive's
+                // commands, since the drive itself is not simulated
+            case SIM:
+                s_Vision =
+                        new Vision(
+                                new CameraIOSim(
+                                        VisionConstants.leftCameraName,
+                                        VisionConstants.leftCameraPosition,
+                                        this::getSimulatedPose),
+                                new CameraIOSim(
+                                        VisionConstants.rightCameraName,
+                                        VisionConstants.rightCameraPosition,
+                                        this::getSimulatedPose));
+                s_Swerve =
+                        new Swerve(
+                                new GyroIO() {},
+                                new ModuleIO() {},
+                                new ModuleIO() {},
+                                new ModuleIO() {},
+                                new ModuleIO() {},
+                                s_Vision);
+                s_Intake = new Intake(new IntakeIO() {});
+                s_Wrist = new Wrist(new WristIO() {});
+                s_Elevator = new Elevator(new ElevatorIO() {});
                 break;
 
                 // Replayed robot, disable IO implementations
@@ -216,6 +260,10 @@ public class RobotContainer {
                 break;
         }
 
+        // Created after every subsystem so the snapshot is built once their sensors are read
+        robotStatePublisher =
+                new RobotStatePublisher(s_Swerve, s_Elevator, s_Wrist, () -> selectedGamePiece);
+
         CameraServer.startAutomaticCapture();
 
         // Sets each subsystem's default commands
@@ -233,7 +281,7 @@ public class RobotContainer {
         autoBuilder =
                 new SwerveAutoBuilder(
                         s_Swerve::getPose,
-                        s_Swerve::resetOdometry,
+                        this::resetOdometry,
                         SwerveConstants.swerveKinematics, // SwerveDriveKinematics
                         new PIDConstants(Constants.Autonomous.kPXController, 0, 0),
                         new PIDConstants(Constants.Autonomous.kPThetaController, 0, 0),
@@ -265,14 +313,15 @@ public class RobotContainer {
         s_Wrist.setDefaultCommand(new TeleopWrist(s_Wrist, () -> operator.getRawAxis(wristAxis)));
 
         s_Intake.setDefaultCommand(
-                new TeleopIntake(s_Intake, s_Wrist, () -> operator.getRawAxis(intakeTrigger)));
+                new TeleopIntake(
+                        s_Intake, s_Wrist, () -> operator.getRawAxis(intakeTrigger), () -> getGamePiece()));
     }
 
     private void configureAutonomousEvents() {
         eventMap = new HashMap<>();
         eventMap.put(
                 "setStandbyPosition",
-                new SetPosition(s_Wrist, s_Elevator, Position.STANDBY, () -> gamePiece));
+                new SetPosition(s_Wrist, s_Elevator, Position.STANDBY, () -> getGamePiece()));
 
         eventMap.put(
                 "setCone3Position",
@@ -400,7 +449,7 @@ public class RobotContainer {
                                                         EjectSpeed.CUBENORMAL,
                                                         Direction.OUTTAKE)),
                                         Map.entry(GamePiece.CONE, coneFlickOuttake)),
-                                () -> gamePiece));
+                                () -> getGamePiece()));
         /*
          * driver.b().whileTrue(
          * autoBuilder.followPath(
@@ -420,7 +469,7 @@ public class RobotContainer {
                                                 GamePiece.CONE,
                                                 new TimedIntake(
                                                         s_Intake, .5, GamePiece.CONE, EjectSpeed.CONEFAST, Direction.OUTTAKE))),
-                                () -> gamePiece));
+                                () -> getGamePiece()));
         driver
                 .rightTrigger()
                 .onTrue(
@@ -444,7 +493,7 @@ public class RobotContainer {
                                                                 GamePiece.CONE,
                                                                 EjectSpeed.CONENORMAL,
                                                                 Direction.OUTTAKE)))),
-                                () -> gamePiece));
+                                () -> getGamePiece()));
 
         /* Operator Buttons */
         operator
@@ -505,7 +554,7 @@ public class RobotContainer {
                                                                 GamePiece.CONE,
                                                                 EjectSpeed.CONENORMAL,
                                                                 Direction.OUTTAKE)))),
-                                () -> gamePiece));
+                                () -> getGamePiece()));
 
         operator
                 .x()
@@ -541,7 +590,7 @@ public class RobotContainer {
                                                         s_Wrist.moveWrist(Position.STANDBY.getWrist()),
                                                         s_Elevator.moveElevator(Position.CONEHIGH.getElev()),
                                                         s_Wrist.moveWrist(Position.CONEHIGH.getWrist())))),
-                                () -> gamePiece));
+                                () -> getGamePiece()));
 
         operator.b().onTrue(new SetPosition(s_Wrist, s_Elevator, Position.MID, () -> getGamePiece()));
         operator.a().onTrue(new SetPosition(s_Wrist, s_Elevator, Position.LOW, () -> getGamePiece()));
@@ -573,12 +622,46 @@ public class RobotContainer {
         s_LEDs.setLEDMode(LEDMode.VECTORWAVE);
     }
 
-    public static GamePiece getGamePiece() {
-        return gamePiece;
+    /**
+     * Returns the selected game piece, including a change made earlier this loop. The snapshot only
+     * picks it up once the next one is published.
+     */
+    public GamePiece getGamePiece() {
+        return selectedGamePiece;
+    }
+
+    public void setGamePiece(GamePiece piece) {
+        selectedGamePiece = piece;
+    }
+
+    /**
+     * Moves the simulated robot by the drive's commanded speeds, as if every command were followed
+     * perfectly. Kept apart from the pose estimator, which the simulated cameras are fused into.
+     */
+    public void simulationPeriodic() {
+        ChassisSpeeds speeds = s_Swerve.getCommandedSpeeds();
+        double dt = LoggedRobot.defaultPeriodSecs;
+        simulatedPose =
+                simulatedPose.exp(
+                        new Twist2d(
+                                speeds.vxMetersPerSecond * dt,
+                                speeds.vyMetersPerSecond * dt,
+                                speeds.omegaRadiansPerSecond * dt));
+        simulatedPoseChannel.record(simulatedPose);
+    }
+
+    /**
+     * Resets the pose estimate, and the simulated robot with it, since a reset is where the robot
+     * was placed on the field.
+     */
+    private void resetOdometry(Pose2d pose) {
+        s_Swerve.resetOdometry(pose);
+        simulatedPose = pose;
     }
 
-    public static void setGamePiece(GamePiece piece) {
-        gamePiece = piece;
+    /** Ground truth for the simulated cameras, independent of the pose estimate. */
+    private Pose2d getSimulatedPose() {
+        return simulatedPose;
     }
 
     /**
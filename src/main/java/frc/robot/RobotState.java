@@ -0,0 +1,96 @@
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants.GamePiece;
+
+/**
+ * Immutable snapshot of the robot's state. A new snapshot is published once per loop by {@link
+ * RobotStatePublisher} after every subsystem has read its sensors, so commands and background
+ * threads all see the same consistent values for that cycle.
+ */
+public final class RobotState {
+    private static volatile RobotState latest =
+            new RobotState(
+                    0,
+                    0.0,
+                    new Pose2d(),
+                    0.0,
+                    0.0,
+                    0.0,
+                    0.0,
+                    0.0,
+                    0.0,
+                    new Rotation2d(),
+                    new Rotation2d(),
+                    new Rotation2d(),
+                    0.0,
+                    0.0,
+                    GamePiece.CONE);
+
+    /** Incremented every time a snapshot is published. */
+    public final long version;
+    /** FPGA time in seconds when the snapshot was built. */
+    public final double timestamp;
+
+    public final Pose2d pose;
+    /** Robot relative velocity in meters and radians per second. */
+    public final double robotVx;
+    public final double robotVy;
+    public final double robotOmega;
+    /** Field relative velocity in meters and radians per second. */
+    public final double fieldVx;
+    public final double fieldVy;
+    public final double fieldOmega;
+
+    public final Rotation2d yaw;
+    public final Rotation2d pitch;
+    public final Rotation2d roll;
+
+    public final double elevatorPosition;
+    public final double wristPosition;
+
+    public final GamePiece gamePiece;
+
+    public RobotState(
+            long version,
+            double timestamp,
+            Pose2d pose,
+            double robotVx,
+            double robotVy,
+            double robotOmega,
+            double fieldVx,
+            double fieldVy,
+            double fieldOmega,
+            Rotation2d yaw,
+            Rotation2d pitch,
+            Rotation2d roll,
+            double elevatorPosition,
+            double wristPosition,
+            GamePiece gamePiece) {
+        this.version = version;
+        this.timestamp = timestamp;
+        this.pose = pose;
+        this.robotVx = robotVx;
+        this.robotVy = robotVy;
+        this.robotOmega = robotOmega;
+        this.fieldVx = fieldVx;
+        this.fieldVy = fieldVy;
+        this.fieldOmega = fieldOmega;
+        this.yaw = yaw;
+        this.pitch = pitch;
+        this.roll = roll;
+        this.elevatorPosition = elevatorPosition;
+        this.wristPosition = wristPosition;
+        this.gamePiece = gamePiece;
+    }
+
+    /** Returns the most recently published snapshot. Safe to call from any thread. */
+    public static RobotState getLatest() {
+        return latest;
+    }
+
+    static void publish(RobotState state) {
+        latest = state;
+    }
+}
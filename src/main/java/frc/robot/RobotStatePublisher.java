@@ -0,0 +1,62 @@
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.GamePiece;
+import frc.robot.subsystems.elevator.Elevator;
+import frc.robot.subsystems.swerve.Swerve;
+import frc.robot.subsystems.wrist.Wrist;
+import java.util.function.Supplier;
+
+/**
+ * Builds and publishes the {@link RobotState} snapshot.
+ *
+ * <p>Subsystem periodics run in the order they were constructed and always before commands, so
+ * this must be created after every subsystem it reads from.
+ */
+public class RobotStatePublisher extends SubsystemBase {
+    private final Swerve s_Swerve;
+    private final Elevator s_Elevator;
+    private final Wrist s_Wrist;
+    private final Supplier<GamePiece> gamePiece;
+
+    private long version = 0;
+
+    public RobotStatePublisher(
+            Swerve s_Swerve, Elevator s_Elevator, Wrist s_Wrist, Supplier<GamePiece> gamePiece) {
+        this.s_Swerve = s_Swerve;
+        this.s_Elevator = s_Elevator;
+        this.s_Wrist = s_Wrist;
+        this.gamePiece = gamePiece;
+    }
+
+    @Override
+    public void periodic() {
+        Pose2d pose = s_Swerve.getPose();
+        ChassisSpeeds robotVelocity = s_Swerve.getRobotVelocity();
+
+        double cos = pose.getRotation().getCos();
+        double sin = pose.getRotation().getSin();
+
+        version++;
+        RobotState.publish(
+                new RobotState(
+                        version,
+                        Timer.getFPGATimestamp(),
+                        pose,
+                        robotVelocity.vxMetersPerSecond,
+                        robotVelocity.vyMetersPerSecond,
+                        robotVelocity.omegaRadiansPerSecond,
+                        robotVelocity.vxMetersPerSecond * cos - robotVelocity.vyMetersPerSecond * sin,
+                        robotVelocity.vxMetersPerSecond * sin + robotVelocity.vyMetersPerSecond * cos,
+                        robotVelocity.omegaRadiansPerSecond,
+                        s_Swerve.getYaw(),
+                        s_Swerve.getPitch(),
+                        s_Swerve.getRoll(),
+                        s_Elevator.getEncoderPosition(),
+                        s_Wrist.getEncoderPosition(),
+                        gamePiece.get()));
+    }
+}
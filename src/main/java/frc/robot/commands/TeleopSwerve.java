@@ -2,10 +2,10 @@ package frc.robot.commands;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.VectorTools.util.SlewRateLimiter;
 import frc.robot.Constants;
+import frc.robot.RobotState;
 import frc.robot.subsystems.LEDs.LEDConstants.LEDMode;
 import frc.robot.subsystems.LEDs.LEDs;
 import frc.robot.subsystems.swerve.Swerve;
@@ -134,17 +134,18 @@ public class TeleopSwerve extends CommandBase {
         double strafeVal;
 
         if (gridLineUp.getAsBoolean()) {
+            RobotState state = RobotState.getLatest();
             strafeVal =
                     MathUtil.clamp(
                             strafeController.calculate(
-                                    s_Swerve.getPose().getY(), Constants.Autonomous.gridLineUpStrafePosition),
+                                    state.pose.getY(), Constants.Autonomous.gridLineUpStrafePosition),
                             -1,
                             1);
 
             rotationVal =
                     MathUtil.clamp(
                             rotationController.calculate(
-                                    s_Swerve.getYaw().getDegrees(), Constants.Autonomous.gridLineUpAngle),
+                                    state.yaw.getDegrees(), Constants.Autonomous.gridLineUpAngle),
                             -1,
                             1);
 
@@ -165,9 +166,8 @@ public class TeleopSwerve extends CommandBase {
         }
 
         s_Swerve.drive(
-                new Translation2d(
-                                translationLimiter.calculate(translationVal), strafeLimiter.calculate(strafeVal))
-                        .times(speedLimit),
+                translationLimiter.calculate(translationVal) * speedLimit,
+                strafeLimiter.calculate(strafeVal) * speedLimit,
                 rotationVal * (angularSpeedLimit),
                 !robotCentricSup.getAsBoolean(),
                 false);
@@ -4,18 +4,23 @@ import edu.wpi.first.wpilibj.AddressableLED;
 import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.VectorTools.util.HSV;
+import frc.lib.util.LogChannel;
+import frc.lib.util.LoopProfiler;
 import frc.robot.Constants.GamePiece;
 import frc.robot.subsystems.LEDs.LEDConstants.LEDMode;
 import frc.robot.subsystems.LEDs.LEDModes.Flash;
 import frc.robot.subsystems.LEDs.LEDModes.OrangeDot;
 import frc.robot.subsystems.LEDs.LEDModes.Rainbow;
 import frc.robot.subsystems.LEDs.LEDModes.VectorWave;
-import org.littletonrobotics.junction.Logger;
 
 public class LEDs extends SubsystemBase {
+    private final LoopProfiler.Section periodicSection =
+            LoopProfiler.getInstance().section("Subsystems/LEDs");
+
     private final AddressableLED m_led;
     private final AddressableLEDBuffer m_ledBuffer;
     private LEDMode mode;
+    private final LogChannel.StringChannel modeChannel = LogChannel.ofString("LEDMode");
 
     private GamePiece hpSignal = GamePiece.CONE;
 
@@ -47,6 +52,7 @@ public class LEDs extends SubsystemBase {
 
     @Override
     public void periodic() {
+        periodicSection.start();
         switch (mode) {
             case RAINBOW:
                 rainbow.execute();
@@ -71,10 +77,12 @@ public class LEDs extends SubsystemBase {
                 break;
         }
         m_led.setData(m_ledBuffer);
+
+        periodicSection.stop();
     }
 
     public void setLEDMode(LEDMode mode) {
-        Logger.getInstance().recordOutput("LEDMode", mode.toString());
+        modeChannel.record(mode.toString());
         this.mode = mode;
     }
 
@@ -1,21 +1,52 @@
 package frc.robot.subsystems.elevator;
 
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.ElevatorFeedforward;
 import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.lib.util.LogChannel;
+import frc.lib.util.LoopProfiler;
+import frc.lib.util.ProfiledSetpoint;
+import frc.lib.util.SampleTier;
+import frc.lib.util.TieredInputs;
 import frc.robot.Constants.Position;
-import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.LoggedRobot;
 
 public class Elevator extends SubsystemBase {
+    private final LoopProfiler.Section periodicSection =
+            LoopProfiler.getInstance().section("Subsystems/Elevator");
+
     private final ElevatorIO io;
     private final ElevatorIOInputsAutoLogged inputs = new ElevatorIOInputsAutoLogged();
+    private final LogChannel.InputsChannel inputsChannel = LogChannel.ofInputs("Elevator");
+    private final TieredInputs<ElevatorIOSlowInputsAutoLogged> slowInputs;
+    private final LogChannel.DoubleChannel targetPositionChannel =
+            LogChannel.ofDouble("ElevatorTargetPosition");
+
+    private final LogChannel.DoubleChannel setpointPositionChannel =
+            LogChannel.ofDouble("ElevatorSetpointPosition");
+    private final LogChannel.DoubleChannel setpointVelocityChannel =
+            LogChannel.ofDouble("ElevatorSetpointVelocity");
 
     private PIDController pidController;
     private double targetPosition;
 
+    // Profile followed by the onboard controller, stepped each loop from the last setpoint
+    private final ProfiledSetpoint setpoint =
+            new ProfiledSetpoint(ElevatorConstants.maxVelocity, ElevatorConstants.maxAcceleration);
+    private final ElevatorFeedforward feedforward =
+            new ElevatorFeedforward(ElevatorConstants.kS, ElevatorConstants.kG, ElevatorConstants.kV);
+
     public Elevator(ElevatorIO io) {
         this.io = io;
+        slowInputs =
+                new TieredInputs<>(
+                        "Elevator/Slow",
+                        SampleTier.SLOW,
+                        new ElevatorIOSlowInputsAutoLogged(),
+                        io::updateSlowInputs);
         // initialize pidContoller
         pidController =
                 new PIDController(
@@ -34,7 +65,7 @@ public class Elevator extends SubsystemBase {
         } else if (targetPos < 0.1) {
             targetPos = 0.1;
         }
-        Logger.getInstance().recordOutput("ElevatorTargetPosition", targetPos);
+        targetPositionChannel.record(targetPos);
         this.targetPosition = targetPos;
     }
 
@@ -63,17 +94,41 @@ public class Elevator extends SubsystemBase {
     }
 
     public boolean atSetpoint() {
+        if (ElevatorConstants.onboardControl) {
+            // The onboard controller only sees the lead motor's encoder
+            return setpoint.atGoal(targetPosition) && reachedSetpoint(inputs.leftPosition);
+        }
         return pidController.atSetpoint();
     }
 
     @Override
     public void periodic() {
+        periodicSection.start();
         io.updateInputs(inputs);
-        Logger.getInstance().processInputs("Elevator", inputs);
-        move(
-                MathUtil.clamp(
-                        pidController.calculate(getEncoderPosition(), targetPosition),
-                        -ElevatorConstants.maxMotorVoltage,
-                        ElevatorConstants.maxMotorVoltage));
+        inputsChannel.process(inputs);
+        slowInputs.periodic();
+        if (ElevatorConstants.onboardControl) {
+            followProfile();
+        } else {
+            move(
+                    MathUtil.clamp(
+                            pidController.calculate(getEncoderPosition(), targetPosition),
+                            -ElevatorConstants.maxMotorVoltage,
+                            ElevatorConstants.maxMotorVoltage));
+        }
+
+        periodicSection.stop();
+    }
+
+    /** Sends the profile's next setpoint to the onboard controller. */
+    private void followProfile() {
+        // Starts from wherever the elevator is when enabled, rather than jumping to the target
+        if (DriverStation.isDisabled()) {
+            setpoint.reset(inputs.leftPosition, 0.0);
+        }
+        setpoint.step(targetPosition, LoggedRobot.defaultPeriodSecs);
+        setpointPositionChannel.record(setpoint.getPosition());
+        setpointVelocityChannel.record(setpoint.getVelocity());
+        io.setPosition(setpoint.getPosition(), feedforward.calculate(setpoint.getVelocity()));
     }
 }
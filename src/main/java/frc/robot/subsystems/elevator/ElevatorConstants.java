@@ -11,4 +11,26 @@ public final class ElevatorConstants {
     public static final double maxMotorVoltage = 9;
 
     public static final int currentLimit = 30;
+
+    /* Onboard Control */
+    // Runs the profile's setpoints on the lead SparkMax instead of the roboRIO PID above. Off until
+    // kG is tuned, since until then the roboRIO PID's integral term is what holds the elevator up
+    public static final boolean onboardControl = false;
+
+    // In encoder rotations, converted from the roboRIO gains since the SparkMax works in duty
+    // cycle and a 1 ms period
+    public static final double onboardKP = elevatorKP / 12.0;
+    public static final double onboardKI = elevatorKI / 12.0 * 0.001;
+    public static final double onboardKD = elevatorKD / 12.0 / 0.001;
+    // Bounds the integral term to 1 V, like the roboRIO PIDController's default integrator range
+    public static final double onboardIMaxAccum = 1.0 / 12.0 / onboardKI;
+
+    // Rotations per second and per second squared
+    public static final double maxVelocity = 40.0;
+    public static final double maxAcceleration = 80.0;
+
+    public static final double kS = 0.0;
+    public static final double kG = 0.0;
+    // A NEO's free speed is 5676 RPM at 12 V
+    public static final double kV = 12.0 / (5676.0 / 60.0);
 }
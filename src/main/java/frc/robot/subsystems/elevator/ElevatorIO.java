@@ -6,21 +6,38 @@ public interface ElevatorIO {
     @AutoLog
     public static class ElevatorIOInputs {
         public double currentPosition = 0.0;
+        // Lead motor's position, which the onboard controller runs on
+        public double leftPosition = 0.0;
 
         // Left elevator motor
         public double leftAppliedVolts = 0.0;
         public double[] leftCurrentAmps = new double[] {};
-        public double[] leftTempCelcius = new double[] {};
 
         // Right elevator motor
         public double rightAppliedVolts = 0.0;
         public double[] rightCurrentAmps = new double[] {};
-        public double[] rightTempCelcius = new double[] {};
+    }
+
+    /** Inputs sampled at {@link frc.lib.util.SampleTier#SLOW}. */
+    @AutoLog
+    public static class ElevatorIOSlowInputs {
+        public double leftTempCelcius = 0.0;
+        public double rightTempCelcius = 0.0;
     }
 
     public default void updateInputs(ElevatorIOInputs inputs) {}
 
+    public default void updateSlowInputs(ElevatorIOSlowInputs inputs) {}
+
     public default void resetEncoder() {}
 
     public default void move(double voltage) {}
+
+    /**
+     * Runs the lead motor's onboard position controller to a profiled setpoint.
+     *
+     * @param position setpoint in encoder rotations
+     * @param ffVoltage feedforward added to the controller's output
+     */
+    public default void setPosition(double position, double ffVoltage) {}
 }
@@ -1,11 +1,22 @@
 package frc.robot.subsystems.elevator;
 
 import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMax.ControlType;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.SparkMaxPIDController;
+import frc.lib.util.CANBusPlanner;
+import frc.lib.util.CANBusPlanner.SparkMaxPlan;
+import frc.lib.util.CANBusPlanner.SparkMaxSignal;
+import frc.lib.util.CANSparkMaxUtil.Usage;
+import frc.lib.util.SparkMaxStatusReader;
 
 public class ElevatorIOSparkMax implements ElevatorIO {
     private final CANSparkMax elevatorMotorLeft; // making the left the lead motor
     private final CANSparkMax elevatorMotorRight;
+    private final SparkMaxPIDController elevatorController;
+
+    private final SparkMaxStatusReader leftStatus;
+    private final SparkMaxStatusReader rightStatus;
 
     public ElevatorIOSparkMax() {
         elevatorMotorLeft = new CANSparkMax(ElevatorConstants.motorLeftId, MotorType.kBrushless);
@@ -19,24 +30,49 @@ public class ElevatorIOSparkMax implements ElevatorIO {
 
         elevatorMotorLeft.setSmartCurrentLimit(ElevatorConstants.currentLimit);
         elevatorMotorRight.setSmartCurrentLimit(ElevatorConstants.currentLimit);
+
+        elevatorController = elevatorMotorLeft.getPIDController();
+        elevatorController.setP(ElevatorConstants.onboardKP);
+        elevatorController.setI(ElevatorConstants.onboardKI);
+        elevatorController.setD(ElevatorConstants.onboardKD);
+        elevatorController.setIMaxAccum(ElevatorConstants.onboardIMaxAccum, 0);
+        elevatorController.setOutputRange(
+                -ElevatorConstants.maxMotorVoltage / 12.0, ElevatorConstants.maxMotorVoltage / 12.0);
+
+        // The right motor follows the left one's applied output. Its applied output and current are
+        // still logged every loop, so those frames stay fast
+        CANBusPlanner.getInstance()
+                .registerSparkMax(
+                        "SparkMax" + ElevatorConstants.motorLeftId, elevatorMotorLeft, Usage.kAll, true);
+        SparkMaxPlan rightPlan =
+                CANBusPlanner.getInstance()
+                        .registerSparkMax(
+                                "SparkMax" + ElevatorConstants.motorRightId,
+                                elevatorMotorRight,
+                                Usage.kPositionOnly);
+        rightPlan.require(SparkMaxSignal.kAppliedOutput, 20);
+        rightPlan.require(SparkMaxSignal.kVelocity, 20);
+
+        leftStatus = new SparkMaxStatusReader(elevatorMotorLeft, elevatorMotorLeft.getEncoder());
+        rightStatus = new SparkMaxStatusReader(elevatorMotorRight, elevatorMotorRight.getEncoder());
     }
 
     @Override
     public void updateInputs(ElevatorIOInputs inputs) {
-        inputs.currentPosition =
-                (elevatorMotorLeft.getEncoder().getPosition()
-                                + elevatorMotorRight.getEncoder().getPosition())
-                        / 2;
-
-        inputs.leftAppliedVolts =
-                elevatorMotorLeft.getAppliedOutput() * elevatorMotorLeft.getBusVoltage();
-        inputs.leftCurrentAmps = new double[] {elevatorMotorLeft.getOutputCurrent()};
-        inputs.leftTempCelcius = new double[] {elevatorMotorLeft.getMotorTemperature()};
-
-        inputs.rightAppliedVolts =
-                elevatorMotorRight.getAppliedOutput() * elevatorMotorRight.getBusVoltage();
-        inputs.rightCurrentAmps = new double[] {elevatorMotorRight.getOutputCurrent()};
-        inputs.rightTempCelcius = new double[] {elevatorMotorRight.getMotorTemperature()};
+        inputs.leftPosition = leftStatus.getPosition();
+        inputs.currentPosition = (inputs.leftPosition + rightStatus.getPosition()) / 2;
+
+        inputs.leftAppliedVolts = leftStatus.getAppliedVolts();
+        inputs.leftCurrentAmps = new double[] {leftStatus.getOutputCurrent()};
+
+        inputs.rightAppliedVolts = rightStatus.getAppliedVolts();
+        inputs.rightCurrentAmps = new double[] {rightStatus.getOutputCurrent()};
+    }
+
+    @Override
+    public void updateSlowInputs(ElevatorIOSlowInputs inputs) {
+        inputs.leftTempCelcius = leftStatus.getMotorTemperature();
+        inputs.rightTempCelcius = rightStatus.getMotorTemperature();
     }
 
     @Override
@@ -49,4 +85,9 @@ public class ElevatorIOSparkMax implements ElevatorIO {
     public void move(double voltage) {
         elevatorMotorLeft.setVoltage(voltage);
     }
+
+    @Override
+    public void setPosition(double position, double ffVoltage) {
+        elevatorController.setReference(position, ControlType.kPosition, 0, ffVoltage);
+    }
 }
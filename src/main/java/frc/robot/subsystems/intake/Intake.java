@@ -1,16 +1,29 @@
 package frc.robot.subsystems.intake;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import org.littletonrobotics.junction.Logger;
+import frc.lib.util.LogChannel;
+import frc.lib.util.LoopProfiler;
+import frc.lib.util.SampleTier;
+import frc.lib.util.TieredInputs;
 
 public class Intake extends SubsystemBase {
+    private final LoopProfiler.Section periodicSection =
+            LoopProfiler.getInstance().section("Subsystems/Intake");
 
     private final IntakeIO io;
     private final IntakeIOInputsAutoLogged inputs = new IntakeIOInputsAutoLogged();
+    private final LogChannel.InputsChannel inputsChannel = LogChannel.ofInputs("Intake");
+    private final TieredInputs<IntakeIOSlowInputsAutoLogged> slowInputs;
 
     /** Constructor for intake subsystem. */
     public Intake(IntakeIO io) {
         this.io = io;
+        slowInputs =
+                new TieredInputs<>(
+                        "Intake/Slow",
+                        SampleTier.SLOW,
+                        new IntakeIOSlowInputsAutoLogged(),
+                        io::updateSlowInputs);
     }
 
     public void setMotor(double speed) {
@@ -23,8 +36,12 @@ public class Intake extends SubsystemBase {
 
     @Override
     public void periodic() {
+        periodicSection.start();
         io.updateInputs(inputs);
-        Logger.getInstance().processInputs("Intake", inputs);
+        inputsChannel.process(inputs);
+        slowInputs.periodic();
+
+        periodicSection.stop();
     }
 
     public void setIntakeEncoder(double position) {
@@ -9,11 +9,18 @@ public interface IntakeIO {
 
         public double appliedVolts = 0.0;
         public double[] currentAmps = new double[] {};
-        public double[] tempCelcius = new double[] {};
+    }
+
+    /** Inputs sampled at {@link frc.lib.util.SampleTier#SLOW}. */
+    @AutoLog
+    public static class IntakeIOSlowInputs {
+        public double tempCelcius = 0.0;
     }
 
     public default void updateInputs(IntakeIOInputs inputs) {}
 
+    public default void updateSlowInputs(IntakeIOSlowInputs inputs) {}
+
     public default void setVoltage(double speed) {}
 
     public default void setPosition(double position) {}
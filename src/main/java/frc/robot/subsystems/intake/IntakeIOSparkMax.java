@@ -3,23 +3,37 @@ package frc.robot.subsystems.intake;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import com.revrobotics.RelativeEncoder;
+import frc.lib.util.CANBusPlanner;
+import frc.lib.util.CANBusPlanner.SparkMaxSignal;
+import frc.lib.util.CANSparkMaxUtil.Usage;
+import frc.lib.util.SparkMaxStatusReader;
 
 public class IntakeIOSparkMax implements IntakeIO {
     private final CANSparkMax intakeMotor;
     private final RelativeEncoder intakeEncoder;
+    private final SparkMaxStatusReader intakeStatus;
 
     public IntakeIOSparkMax() {
         intakeMotor = new CANSparkMax(IntakeConstants.motorId, MotorType.kBrushless);
         intakeEncoder = intakeMotor.getEncoder();
+        // Applied volts are logged every loop
+        CANBusPlanner.getInstance()
+                .registerSparkMax("SparkMax" + IntakeConstants.motorId, intakeMotor, Usage.kVelocityOnly)
+                .require(SparkMaxSignal.kAppliedOutput, 20);
+        intakeStatus = new SparkMaxStatusReader(intakeMotor, intakeEncoder);
     }
 
     @Override
     public void updateInputs(IntakeIOInputs inputs) {
-        inputs.velocity = intakeEncoder.getVelocity();
+        inputs.velocity = intakeStatus.getVelocity();
 
-        inputs.appliedVolts = intakeMotor.getAppliedOutput() * intakeMotor.getBusVoltage();
-        inputs.currentAmps = new double[] {intakeMotor.getOutputCurrent()};
-        inputs.tempCelcius = new double[] {intakeMotor.getMotorTemperature()};
+        inputs.appliedVolts = intakeStatus.getAppliedVolts();
+        inputs.currentAmps = new double[] {intakeStatus.getOutputCurrent()};
+    }
+
+    @Override
+    public void updateSlowInputs(IntakeIOSlowInputs inputs) {
+        inputs.tempCelcius = intakeStatus.getMotorTemperature();
     }
 
     @Override
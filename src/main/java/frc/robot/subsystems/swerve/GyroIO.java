@@ -13,6 +13,10 @@ public interface GyroIO {
         public double rollVelocityPerSec = 0.0;
         public double pitchVelocityPerSec = 0.0;
         public double yawVelocityPerSec = 0.0;
+
+        // Samples taken by the odometry thread since the last loop
+        public double[] odometryYawTimestamps = new double[] {};
+        public double[] odometryYawPositions = new double[] {};
     }
 
     public default void updateInputs(GyroIOInputs inputs) {}
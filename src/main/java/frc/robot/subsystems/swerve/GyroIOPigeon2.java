@@ -3,17 +3,30 @@ package frc.robot.subsystems.swerve;
 import com.ctre.phoenix.ErrorCode;
 import com.ctre.phoenix.sensors.Pigeon2;
 import edu.wpi.first.math.geometry.Rotation2d;
+import frc.lib.util.CANBusPlanner;
 
 /** IO implementation for Pigeon2 */
 public class GyroIOPigeon2 implements GyroIO {
+    private static final double[] noSamples = new double[] {};
+
     private final Pigeon2 pigeon;
     private final double[] xyzDps = new double[3];
+    private final OdometryThread.Queue yawQueue;
 
     public GyroIOPigeon2() {
         pigeon = new Pigeon2(SwerveConstants.pigeonID);
 
         pigeon.zeroGyroBiasNow();
         pigeon.setYaw(0.0);
+        // Yaw is sampled by the odometry thread, angular velocity once per loop
+        CANBusPlanner.getInstance()
+                .registerPigeon2(
+                        "Pigeon2" + SwerveConstants.pigeonID,
+                        pigeon,
+                        SwerveConstants.odometryFramePeriodMs,
+                        20);
+
+        yawQueue = OdometryThread.getInstance().registerSignals(pigeon::getYaw);
     }
 
     @Override
@@ -26,6 +39,17 @@ public class GyroIOPigeon2 implements GyroIO {
         inputs.rollVelocityPerSec = xyzDps[1];
         inputs.pitchVelocityPerSec = -xyzDps[0];
         inputs.yawVelocityPerSec = xyzDps[2];
+
+        // Logged arrays are kept by reference until the log is written, so they can't be reused
+        int samples = yawQueue.size();
+        if (samples == 0) {
+            inputs.odometryYawTimestamps = noSamples;
+            inputs.odometryYawPositions = noSamples;
+        } else {
+            inputs.odometryYawTimestamps = new double[samples];
+            inputs.odometryYawPositions = new double[samples];
+            yawQueue.poll(inputs.odometryYawTimestamps, inputs.odometryYawPositions);
+        }
     }
 
     @Override
@@ -1,34 +1,64 @@
 package frc.robot.subsystems.swerve;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import org.littletonrobotics.junction.Logger;
+import frc.lib.util.LogChannel;
+import frc.lib.util.SampleTier;
+import frc.lib.util.TieredInputs;
 
 public class Module {
-    private Rotation2d lastAngle;
+    private double lastAngleDegrees;
 
     public ModuleIO io;
 
     public int index;
 
     private final ModuleIOInputsAutoLogged inputs = new ModuleIOInputsAutoLogged();
+    private final LogChannel.InputsChannel inputsChannel;
+    private final TieredInputs<ModuleIOSlowInputsAutoLogged> slowInputs;
 
     private final SimpleMotorFeedforward feedforward =
             new SimpleMotorFeedforward(
                     SwerveConstants.driveKS, SwerveConstants.driveKV, SwerveConstants.driveKA);
 
+    /* Reused every loop, Rotation2d is only rebuilt when the turn position changes */
+    private Rotation2d turnRotation = new Rotation2d();
+    private double turnRotationDegrees = 0.0;
+    private double odometryTurnDegrees = 0.0;
+    private final SwerveModuleState state = new SwerveModuleState();
+    private final SwerveModulePosition position = new SwerveModulePosition();
+    private final SwerveModulePosition odometryPosition = new SwerveModulePosition();
+
     public Module(ModuleIO io, int index) {
         this.io = io;
         this.index = index;
-
-        lastAngle = Rotation2d.fromDegrees(inputs.turnPosition);
+        inputsChannel = LogChannel.ofInputs("Drive/Module" + index);
+        slowInputs =
+                new TieredInputs<>(
+                        "Drive/Module" + index + "/Slow",
+                        SampleTier.SLOW,
+                        new ModuleIOSlowInputsAutoLogged(),
+                        io::updateSlowInputs);
+
+        lastAngleDegrees = inputs.turnPosition;
     }
 
     public void periodic() {
         io.updateInputs(inputs);
-        Logger.getInstance().processInputs("Drive/Module" + Integer.toString(index), inputs);
+        inputsChannel.process(inputs);
+        slowInputs.periodic();
+
+        if (turnRotationDegrees != inputs.turnPosition) {
+            turnRotationDegrees = inputs.turnPosition;
+            turnRotation = Rotation2d.fromDegrees(turnRotationDegrees);
+        }
+        state.speedMetersPerSecond = inputs.driveVelocityPerSec;
+        state.angle = turnRotation;
+        position.distanceMeters = inputs.drivePosition;
+        position.angle = turnRotation;
     }
 
     /**
@@ -36,54 +66,89 @@ public class Module {
      * @param isOpenLoop
      */
     public void setDesiredState(SwerveModuleState desiredState, boolean isOpenLoop) {
-        desiredState =
-                SwerveModuleState.optimize(desiredState, Rotation2d.fromDegrees(inputs.turnPosition));
-        // Custom optimize command, since default WPILib optimize assumes
-        // continuous controller which REV and CTRE are not
+        setDesiredState(desiredState.speedMetersPerSecond, desiredState.angle.getDegrees(), isOpenLoop);
+    }
+
+    /**
+     * Allocation free version of {@link #setDesiredState(SwerveModuleState, boolean)}.
+     *
+     * @param speedMetersPerSecond desired wheel speed
+     * @param angleDegrees desired module angle
+     * @param isOpenLoop
+     */
+    public void setDesiredState(
+            double speedMetersPerSecond, double angleDegrees, boolean isOpenLoop) {
+        // Same as SwerveModuleState.optimize, flip the wheel instead of turning more than 90 degrees
+        double delta = MathUtil.inputModulus(angleDegrees - inputs.turnPosition, -180.0, 180.0);
+        if (Math.abs(delta) > 90.0) {
+            speedMetersPerSecond = -speedMetersPerSecond;
+            angleDegrees += 180.0;
+        }
+        angleDegrees = MathUtil.inputModulus(angleDegrees, -180.0, 180.0);
 
-        setAngle(desiredState);
-        setSpeed(desiredState, isOpenLoop);
+        setAngle(speedMetersPerSecond, angleDegrees);
+        setSpeed(speedMetersPerSecond, isOpenLoop);
     }
 
     /**
-     * @param desiredState
+     * @param speedMetersPerSecond
      * @param isOpenLoop
      */
-    private void setSpeed(SwerveModuleState desiredState, boolean isOpenLoop) {
+    private void setSpeed(double speedMetersPerSecond, boolean isOpenLoop) {
         if (isOpenLoop) {
-            double percentOutput = desiredState.speedMetersPerSecond / SwerveConstants.fastSpeedLimit;
+            double percentOutput = speedMetersPerSecond / SwerveConstants.fastSpeedLimit;
             io.setMotorOutput(percentOutput);
         } else {
-            io.setVelocity(desiredState, feedforward.calculate(desiredState.speedMetersPerSecond));
+            io.setVelocity(speedMetersPerSecond, feedforward.calculate(speedMetersPerSecond));
         }
     }
 
     /**
-     * @param desiredState
+     * @param speedMetersPerSecond
+     * @param angleDegrees
      */
-    private void setAngle(SwerveModuleState desiredState) {
+    private void setAngle(double speedMetersPerSecond, double angleDegrees) {
         // Prevent rotating module if speed is less then 1%. Prevents jittering.
-        Rotation2d angle =
-                (Math.abs(desiredState.speedMetersPerSecond)
-                                <= (SwerveConstants.fastAngularVelocityLimit * 0.01))
-                        ? lastAngle
-                        : desiredState.angle;
+        double angle =
+                (Math.abs(speedMetersPerSecond) <= (SwerveConstants.fastAngularVelocityLimit * 0.01))
+                        ? lastAngleDegrees
+                        : angleDegrees;
 
         io.setAngle(angle);
-        lastAngle = angle;
+        lastAngleDegrees = angle;
     }
 
     public void resetToAbsolute() {
         io.resetToAbsolute();
     }
 
+    /** Returns the measured state. The instance is reused and updated every loop. */
     public SwerveModuleState getState() {
-        return new SwerveModuleState(
-                inputs.driveVelocityPerSec, Rotation2d.fromDegrees(inputs.turnPosition));
+        return state;
     }
 
+    /** Returns the measured position. The instance is reused and updated every loop. */
     public SwerveModulePosition getPosition() {
-        return new SwerveModulePosition(
-                inputs.drivePosition, Rotation2d.fromDegrees(inputs.turnPosition));
+        return position;
+    }
+
+    /** Returns the timestamps of the odometry samples received this loop. */
+    public double[] getOdometryTimestamps() {
+        return inputs.odometryTimestamps;
+    }
+
+    /**
+     * @param sample index into {@link #getOdometryTimestamps()}
+     * @return the module position recorded by the odometry thread for that sample. The instance is
+     *     reused between calls.
+     */
+    public SwerveModulePosition getOdometryPosition(int sample) {
+        double turnDegrees = inputs.odometryTurnPositions[sample];
+        odometryPosition.distanceMeters = inputs.odometryDrivePositions[sample];
+        if (odometryTurnDegrees != turnDegrees) {
+            odometryTurnDegrees = turnDegrees;
+            odometryPosition.angle = Rotation2d.fromDegrees(turnDegrees);
+        }
+        return odometryPosition;
     }
 }
@@ -1,7 +1,5 @@
 package frc.robot.subsystems.swerve;
 
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface ModuleIO {
@@ -13,24 +11,36 @@ public interface ModuleIO {
         public double driveVelocityPerSec = 0.0;
         public double driveAppliedVolts = 0.0;
         public double[] driveCurrentAmps = new double[] {};
-        public double[] driveTempCelcius = new double[] {};
 
         public double turnAbsolutePosition = 0.0;
         public double turnPosition = 0.0;
         public double turnVelocityPerSec = 0.0;
         public double turnAppliedVolts = 0.0;
         public double[] turnCurrentAmps = new double[] {};
-        public double[] turnTempCelcius = new double[] {};
+
+        // Samples taken by the odometry thread since the last loop
+        public double[] odometryTimestamps = new double[] {};
+        public double[] odometryDrivePositions = new double[] {};
+        public double[] odometryTurnPositions = new double[] {};
+    }
+
+    /** Inputs sampled at {@link frc.lib.util.SampleTier#SLOW}. */
+    @AutoLog
+    public static class ModuleIOSlowInputs {
+        public double driveTempCelcius = 0.0;
+        public double turnTempCelcius = 0.0;
     }
 
     /** Updates the set of loggable inputs. */
     public default void updateInputs(ModuleIOInputs inputs) {}
 
+    public default void updateSlowInputs(ModuleIOSlowInputs inputs) {}
+
     public default void resetToAbsolute() {}
 
     public default void setMotorOutput(double percentOutput) {}
 
-    public default void setVelocity(SwerveModuleState desiredState, double ffVoltage) {}
+    public default void setVelocity(double velocityMetersPerSec, double ffVoltage) {}
 
-    public default void setAngle(Rotation2d angle) {}
+    public default void setAngle(double angleDegrees) {}
 }
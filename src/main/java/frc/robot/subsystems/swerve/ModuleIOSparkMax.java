@@ -6,13 +6,13 @@ import com.revrobotics.CANSparkMax.ControlType;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkMaxPIDController;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
 import frc.lib.config.SwerveModuleConstants;
-import frc.lib.util.CANCoderUtil;
+import frc.lib.util.CANBusPlanner;
+import frc.lib.util.CANBusPlanner.SparkMaxSignal;
 import frc.lib.util.CANCoderUtil.CCUsage;
-import frc.lib.util.CANSparkMaxUtil;
 import frc.lib.util.CANSparkMaxUtil.Usage;
+import frc.lib.util.CachedSignal;
+import frc.lib.util.SparkMaxStatusReader;
 import frc.robot.Robot;
 
 public class ModuleIOSparkMax implements ModuleIO {
@@ -29,6 +29,14 @@ public class ModuleIOSparkMax implements ModuleIO {
     private RelativeEncoder integratedAngleEncoder;
     private CANCoder angleEncoder;
 
+    private static final double[] noSamples = new double[] {};
+
+    private final OdometryThread.Queue odometryQueue;
+
+    private final SparkMaxStatusReader driveStatus;
+    private final SparkMaxStatusReader angleStatus;
+    private final CachedSignal absolutePosition;
+
     public double position = 0.0;
 
     public ModuleIOSparkMax(SwerveModuleConstants moduleConstants) {
@@ -49,24 +57,55 @@ public class ModuleIOSparkMax implements ModuleIO {
         driveEncoder = driveMotor.getEncoder();
         driveController = driveMotor.getPIDController();
         configDriveMotor();
+
+        driveStatus = new SparkMaxStatusReader(driveMotor, driveEncoder);
+        angleStatus = new SparkMaxStatusReader(angleMotor, integratedAngleEncoder);
+        absolutePosition = new CachedSignal(angleEncoder::getAbsolutePosition);
+
+        odometryQueue =
+                OdometryThread.getInstance()
+                        .registerSignals(driveEncoder::getPosition, integratedAngleEncoder::getPosition);
     }
 
     @Override
     public void updateInputs(ModuleIOInputs inputs) {
-        inputs.absoluteEncoder = angleEncoder.getAbsolutePosition();
-
-        inputs.drivePosition = driveEncoder.getPosition();
-        inputs.driveVelocityPerSec = driveEncoder.getVelocity();
-        inputs.driveAppliedVolts = driveMotor.getAppliedOutput() * driveMotor.getBusVoltage();
-        inputs.driveCurrentAmps = new double[] {driveMotor.getOutputCurrent()};
-        inputs.driveTempCelcius = new double[] {driveMotor.getMotorTemperature()};
-
-        inputs.turnAbsolutePosition = angleEncoder.getAbsolutePosition();
-        inputs.turnPosition = integratedAngleEncoder.getPosition();
-        inputs.turnVelocityPerSec = integratedAngleEncoder.getVelocity();
-        inputs.turnAppliedVolts = angleMotor.getAppliedOutput() * angleMotor.getBusVoltage();
-        inputs.turnCurrentAmps = new double[] {angleMotor.getOutputCurrent()};
-        inputs.turnTempCelcius = new double[] {angleMotor.getMotorTemperature()};
+        inputs.absoluteEncoder = absolutePosition.get();
+
+        inputs.drivePosition = driveStatus.getPosition();
+        inputs.driveVelocityPerSec = driveStatus.getVelocity();
+        inputs.driveAppliedVolts = driveStatus.getAppliedVolts();
+        inputs.driveCurrentAmps = updateArray(inputs.driveCurrentAmps, driveStatus.getOutputCurrent());
+
+        inputs.turnAbsolutePosition = absolutePosition.get();
+        inputs.turnPosition = angleStatus.getPosition();
+        inputs.turnVelocityPerSec = angleStatus.getVelocity();
+        inputs.turnAppliedVolts = angleStatus.getAppliedVolts();
+        inputs.turnCurrentAmps = updateArray(inputs.turnCurrentAmps, angleStatus.getOutputCurrent());
+
+        // Logged arrays are kept by reference until the log is written, so they can't be reused
+        int samples = odometryQueue.size();
+        if (samples == 0) {
+            inputs.odometryTimestamps = noSamples;
+            inputs.odometryDrivePositions = noSamples;
+            inputs.odometryTurnPositions = noSamples;
+        } else {
+            inputs.odometryTimestamps = new double[samples];
+            inputs.odometryDrivePositions = new double[samples];
+            inputs.odometryTurnPositions = new double[samples];
+            odometryQueue.poll(
+                    inputs.odometryTimestamps, inputs.odometryDrivePositions, inputs.odometryTurnPositions);
+        }
+    }
+
+    /** Returns the logged array if it already holds the value, otherwise a new one. */
+    private static double[] updateArray(double[] logged, double value) {
+        return logged.length == 1 && logged[0] == value ? logged : new double[] {value};
+    }
+
+    @Override
+    public void updateSlowInputs(ModuleIOSlowInputs inputs) {
+        inputs.driveTempCelcius = driveStatus.getMotorTemperature();
+        inputs.turnTempCelcius = angleStatus.getMotorTemperature();
     }
 
     @Override
@@ -80,7 +119,10 @@ public class ModuleIOSparkMax implements ModuleIO {
 
     private void configAngleMotor() {
         angleMotor.restoreFactoryDefaults();
-        CANSparkMaxUtil.setCANSparkMaxBusUsage(angleMotor, Usage.kPositionOnly);
+        CANBusPlanner.getInstance()
+                .registerSparkMax(
+                        "SparkMax" + angleMotor.getDeviceId(), angleMotor, Usage.kPositionOnly)
+                .require(SparkMaxSignal.kPosition, SwerveConstants.odometryFramePeriodMs);
         angleMotor.setSmartCurrentLimit(SwerveConstants.angleContinuousCurrentLimit);
         angleMotor.setInverted(SwerveConstants.angleInvert);
         angleMotor.setIdleMode(SwerveConstants.angleNeutralMode);
@@ -100,7 +142,9 @@ public class ModuleIOSparkMax implements ModuleIO {
     /** */
     private void configAngleEncoder() {
         angleEncoder.configFactoryDefault();
-        CANCoderUtil.setCANCoderBusUsage(angleEncoder, CCUsage.kMinimal);
+        CANBusPlanner.getInstance()
+                .registerCANCoder(
+                        "CANCoder" + angleEncoder.getDeviceID(), angleEncoder, CCUsage.kMinimal);
         angleEncoder.configAllSettings(Robot.ctreConfigs.swerveCanCoderConfig);
     }
 
@@ -115,7 +159,10 @@ public class ModuleIOSparkMax implements ModuleIO {
     /** */
     private void configDriveMotor() {
         driveMotor.restoreFactoryDefaults();
-        CANSparkMaxUtil.setCANSparkMaxBusUsage(driveMotor, Usage.kVelocityOnly);
+        CANBusPlanner.getInstance()
+                .registerSparkMax(
+                        "SparkMax" + driveMotor.getDeviceId(), driveMotor, Usage.kVelocityOnly)
+                .require(SparkMaxSignal.kPosition, SwerveConstants.odometryFramePeriodMs);
         driveMotor.setSmartCurrentLimit(SwerveConstants.driveContinuousCurrentLimit);
         driveMotor.setInverted(SwerveConstants.driveInvert);
         driveMotor.setIdleMode(SwerveConstants.driveNeutralMode);
@@ -131,13 +178,12 @@ public class ModuleIOSparkMax implements ModuleIO {
     }
 
     @Override
-    public void setVelocity(SwerveModuleState desiredState, double ffVoltage) {
-        driveController.setReference(
-                desiredState.speedMetersPerSecond, ControlType.kVelocity, 0, ffVoltage);
+    public void setVelocity(double velocityMetersPerSec, double ffVoltage) {
+        driveController.setReference(velocityMetersPerSec, ControlType.kVelocity, 0, ffVoltage);
     }
 
     @Override
-    public void setAngle(Rotation2d angle) {
-        angleController.setReference(angle.getDegrees(), ControlType.kPosition);
+    public void setAngle(double angleDegrees) {
+        angleController.setReference(angleDegrees, ControlType.kPosition);
     }
 }
@@ -0,0 +1,155 @@
+package frc.robot.subsystems.swerve;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.lib.util.LoopTracer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Samples odometry signals on a dedicated thread at {@link SwerveConstants#odometryFrequency}.
+ *
+ * <p>Every IO implementation registers the signals it owns and receives a {@link Queue} to read
+ * them from. All signals are sampled into one ring buffer with one timestamp per tick, and the
+ * buffer is drained once per loop by {@link #drain()}, so every queue sees the same ticks and
+ * samples line up across the drive modules and the gyro.
+ */
+public class OdometryThread {
+    private static OdometryThread instance = null;
+
+    private static final int capacity = 32;
+    private static final int maxSignals = 16;
+
+    private final Notifier notifier;
+
+    // Guarded by this, held only while a sampled tick is copied in or the buffer is drained
+    private final DoubleSupplier[] signals = new DoubleSupplier[maxSignals];
+    private int signalCount = 0;
+    private final double[] timestamps = new double[capacity];
+    private final double[][] values = new double[maxSignals][capacity];
+    private long writeCount = 0;
+    private long readCount = 0;
+    private long droppedCount = 0;
+
+    // Owned by the sampling thread, so the vendor reads happen outside the lock
+    private final double[] scratch = new double[maxSignals];
+
+    // Ticks taken by the last drain, read by every queue
+    private int drainedCount = 0;
+    private final double[] drainedTimestamps = new double[capacity];
+    private final double[][] drainedValues = new double[maxSignals][capacity];
+
+    public static OdometryThread getInstance() {
+        if (instance == null) {
+            instance = new OdometryThread();
+        }
+        return instance;
+    }
+
+    private final LoopTracer.Span sampleSpan = LoopTracer.getInstance().span("Odometry/Sample");
+
+    private OdometryThread() {
+        notifier = new Notifier(this::sample);
+        notifier.setName("OdometryThread");
+    }
+
+    /**
+     * Registers a group of signals that are sampled together. The thread is started on the first
+     * registration so replay and stub IO never spin it up.
+     *
+     * @param signals suppliers read from the odometry thread, in the order they are polled
+     * @return the queue the samples are read from
+     */
+    public synchronized Queue registerSignals(DoubleSupplier... signals) {
+        if (signalCount + signals.length > maxSignals) {
+            throw new IllegalStateException("Too many odometry signals registered");
+        }
+        Queue queue = new Queue(signalCount, signals.length);
+        for (DoubleSupplier signal : signals) {
+            this.signals[signalCount++] = signal;
+        }
+
+        if (queue.offset == 0) {
+            notifier.startPeriodic(1.0 / SwerveConstants.odometryFrequency);
+        }
+        return queue;
+    }
+
+    private void sample() {
+        sampleSpan.begin();
+        int count;
+        synchronized (this) {
+            count = signalCount;
+        }
+        double timestamp = Timer.getFPGATimestamp();
+        for (int i = 0; i < count; i++) {
+            scratch[i] = signals[i].getAsDouble();
+        }
+
+        // Only the copy into the ring holds the lock drain() waits on
+        synchronized (this) {
+            int slot = (int) (writeCount % capacity);
+            timestamps[slot] = timestamp;
+            for (int i = 0; i < count; i++) {
+                values[i][slot] = scratch[i];
+            }
+            writeCount++;
+        }
+        sampleSpan.end();
+    }
+
+    /**
+     * Takes every tick sampled since the last drain, which the queues then read. Call once per loop
+     * before any IO reads its queue.
+     */
+    public synchronized void drain() {
+        long start = Math.max(readCount, writeCount - capacity);
+        droppedCount += start - readCount;
+        drainedCount = (int) (writeCount - start);
+
+        for (int i = 0; i < drainedCount; i++) {
+            int slot = (int) ((start + i) % capacity);
+            drainedTimestamps[i] = timestamps[slot];
+            for (int j = 0; j < signalCount; j++) {
+                drainedValues[j][i] = values[j][slot];
+            }
+        }
+        readCount = writeCount;
+    }
+
+    /** Returns the number of ticks that were overwritten before they could be drained. */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /** The signals registered by one IO, read from the ticks taken by the last drain. */
+    public class Queue {
+        private final int offset;
+        private final int length;
+
+        private Queue(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /** Returns the number of ticks taken by the last drain. */
+        public int size() {
+            return drainedCount;
+        }
+
+        /**
+         * Copies the ticks taken by the last drain into the given arrays.
+         *
+         * @param timestampsOut destination for tick timestamps in seconds
+         * @param valuesOut one destination per registered signal, in registration order
+         * @return the number of ticks copied
+         */
+        public int poll(double[] timestampsOut, double[]... valuesOut) {
+            int count = Math.min(drainedCount, timestampsOut.length);
+            System.arraycopy(drainedTimestamps, 0, timestampsOut, 0, count);
+            for (int j = 0; j < Math.min(valuesOut.length, length); j++) {
+                System.arraycopy(drainedValues[offset + j], 0, valuesOut[j], 0, count);
+            }
+            return count;
+        }
+    }
+}
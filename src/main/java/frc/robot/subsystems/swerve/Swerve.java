@@ -10,24 +10,57 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.VectorTools.util.PoseHistory;
 import frc.VectorTools.util.PoseMeasurement;
+import frc.lib.util.LogChannel;
+import frc.lib.util.LoopProfiler;
+import frc.lib.util.LoopTracer;
 import frc.robot.subsystems.vision.Vision;
 import java.util.List;
-import java.util.Optional;
-import org.littletonrobotics.junction.Logger;
 
 public class Swerve extends SubsystemBase {
+    private final LoopProfiler.Section periodicSection =
+            LoopProfiler.getInstance().section("Subsystems/Swerve");
+    private final LoopTracer.Span inputsSpan = LoopTracer.getInstance().span("Swerve/Inputs");
+    private final LoopTracer.Span odometrySpan = LoopTracer.getInstance().span("Swerve/Odometry");
+    private final LoopTracer.Span visionFusionSpan =
+            LoopTracer.getInstance().span("Swerve/VisionFusion");
 
     private SwerveDrivePoseEstimator swervePoseEstimator;
     private Module[] mSwerveMods;
 
     private GyroIO gyroIO;
     private final GyroIOInputsAutoLogged gyroInputs = new GyroIOInputsAutoLogged();
+    private final LogChannel.InputsChannel gyroInputsChannel = LogChannel.ofInputs("Drive/Gyro");
+    private final LogChannel.Pose2dChannel robotPoseChannel =
+            LogChannel.ofPose2d("Odometry/RobotPose");
+    private final LogChannel.ModuleStatesChannel moduleStatesChannel =
+            LogChannel.ofModuleStates("SwerveModuleStates");
 
-    private ChassisSpeeds chassisSpeeds;
+    private final ChassisSpeeds chassisSpeeds = new ChassisSpeeds();
+    private final ChassisSpeeds robotVelocity = new ChassisSpeeds();
+
+    private final PoseHistory poseHistory = new PoseHistory(SwerveConstants.poseHistoryCapacity);
+
+    /* Preallocated so the drive and odometry paths do not allocate every loop */
+    private final double[] desiredSpeeds = new double[4];
+    private final double[] desiredAnglesDegrees = new double[4];
+    private final SwerveModuleState[] states = new SwerveModuleState[4];
+    private final SwerveModulePosition[] positions = new SwerveModulePosition[4];
+    private final SwerveModulePosition[] odometryPositions = new SwerveModulePosition[4];
+
+    /* Rotation2d is immutable, so a new one is only built when the yaw changes */
+    private Rotation2d yaw = new Rotation2d();
+    private double yawDegrees = 0.0;
+    private Rotation2d odometryYaw = new Rotation2d();
+    private double odometryYawDegrees = 0.0;
+
+    // Sum of the squared distances of the modules from the center, used by updateRobotVelocity()
+    private double moduleRadiusSquaredSum = 0.0;
 
     private final Vision s_Vision;
 
@@ -51,6 +84,10 @@ public class Swerve extends SubsystemBase {
                     new Module(blModuleIO, 2),
                     new Module(brModuleIO, 3)
                 };
+        for (Translation2d location : SwerveConstants.moduleTranslations) {
+            moduleRadiusSquaredSum +=
+                    location.getX() * location.getX() + location.getY() * location.getY();
+        }
 
         swervePoseEstimator =
                 new SwerveDrivePoseEstimator(
@@ -66,29 +103,62 @@ public class Swerve extends SubsystemBase {
         resetToAbsolute();
 
         field = new Field2d();
-        chassisSpeeds = new ChassisSpeeds();
         SmartDashboard.putData(field);
     }
 
     public void drive(
             Translation2d translation, double rotation, boolean fieldRelative, boolean isOpenLoop) {
-        chassisSpeeds =
-                fieldRelative
-                        ? ChassisSpeeds.fromFieldRelativeSpeeds(
-                                translation.getX(), translation.getY(), rotation, getYaw())
-                        : new ChassisSpeeds(translation.getX(), translation.getY(), rotation);
-        SwerveModuleState[] swerveModuleStates =
-                SwerveConstants.swerveKinematics.toSwerveModuleStates(chassisSpeeds);
-        SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, SwerveConstants.fastSpeedLimit);
+        drive(translation.getX(), translation.getY(), rotation, fieldRelative, isOpenLoop);
+    }
+
+    /**
+     * Allocation free drive. Converts the chassis speeds to module states in place and sends them to
+     * the modules, matching {@link SwerveDriveKinematics#toSwerveModuleStates} followed by {@link
+     * SwerveDriveKinematics#desaturateWheelSpeeds}.
+     *
+     * @param xSpeed forward velocity in meters per second
+     * @param ySpeed leftward velocity in meters per second
+     * @param rotation counterclockwise angular velocity in radians per second
+     * @param fieldRelative whether the x and y speeds are relative to the field
+     * @param isOpenLoop
+     */
+    public void drive(
+            double xSpeed, double ySpeed, double rotation, boolean fieldRelative, boolean isOpenLoop) {
+        if (fieldRelative) {
+            double yawRadians = Math.toRadians(getYawDegrees());
+            double cos = Math.cos(yawRadians);
+            double sin = Math.sin(yawRadians);
+            chassisSpeeds.vxMetersPerSecond = xSpeed * cos + ySpeed * sin;
+            chassisSpeeds.vyMetersPerSecond = -xSpeed * sin + ySpeed * cos;
+        } else {
+            chassisSpeeds.vxMetersPerSecond = xSpeed;
+            chassisSpeeds.vyMetersPerSecond = ySpeed;
+        }
+        chassisSpeeds.omegaRadiansPerSecond = rotation;
+
+        double maxSpeed = 0.0;
+        for (int i = 0; i < mSwerveMods.length; i++) {
+            Translation2d location = SwerveConstants.moduleTranslations[i];
+            double vx = chassisSpeeds.vxMetersPerSecond - rotation * location.getY();
+            double vy = chassisSpeeds.vyMetersPerSecond + rotation * location.getX();
 
+            desiredSpeeds[i] = Math.hypot(vx, vy);
+            desiredAnglesDegrees[i] = Math.toDegrees(Math.atan2(vy, vx));
+            maxSpeed = Math.max(maxSpeed, desiredSpeeds[i]);
+        }
+
+        double scale =
+                maxSpeed > SwerveConstants.fastSpeedLimit ? SwerveConstants.fastSpeedLimit / maxSpeed : 1.0;
         for (Module mod : mSwerveMods) {
-            mod.setDesiredState(swerveModuleStates[mod.index], isOpenLoop);
+            mod.setDesiredState(
+                    desiredSpeeds[mod.index] * scale, desiredAnglesDegrees[mod.index], isOpenLoop);
         }
     }
 
     /* Used by SwerveControllerCommand in Auto */
     public void setModuleStates(SwerveModuleState[] desiredStates) {
         SwerveDriveKinematics.desaturateWheelSpeeds(desiredStates, SwerveConstants.fastSpeedLimit);
+        toChassisSpeeds(desiredStates, chassisSpeeds);
 
         for (Module mod : mSwerveMods) {
             mod.setDesiredState(desiredStates[mod.index], false);
@@ -96,21 +166,49 @@ public class Swerve extends SubsystemBase {
     }
 
     public void setModuleRotation(Rotation2d rotation) {
+        chassisSpeeds.vxMetersPerSecond = 0.0;
+        chassisSpeeds.vyMetersPerSecond = 0.0;
+        chassisSpeeds.omegaRadiansPerSecond = 0.0;
         for (Module mod : mSwerveMods) {
-            mod.setDesiredState(new SwerveModuleState(0, rotation), false);
+            mod.setDesiredState(0, rotation.getDegrees(), false);
         }
     }
 
+    /**
+     * Returns the last commanded robot relative chassis speeds. The instance is reused and updated
+     * by every drive command.
+     */
+    public ChassisSpeeds getCommandedSpeeds() {
+        return chassisSpeeds;
+    }
+
     public Pose2d getPose() {
         return swervePoseEstimator.getEstimatedPosition();
     }
 
+    /**
+     * Returns the measured robot relative chassis speeds. The instance is reused and updated every
+     * loop.
+     */
+    public ChassisSpeeds getRobotVelocity() {
+        return robotVelocity;
+    }
+
+    /**
+     * Returns the history of estimated poses and velocities, used to look up the pose at the time a
+     * measurement was taken.
+     */
+    public PoseHistory getPoseHistory() {
+        return poseHistory;
+    }
+
     public Field2d getField() {
         return field;
     }
 
     public void resetOdometry(Pose2d pose) {
         swervePoseEstimator.resetPosition(getYaw(), getPositions(), pose);
+        poseHistory.clear();
     }
 
     public void resetToAbsolute() {
@@ -119,16 +217,16 @@ public class Swerve extends SubsystemBase {
         }
     }
 
+    /** Returns the measured module states. The array is reused and updated every loop. */
     public SwerveModuleState[] getStates() {
-        SwerveModuleState[] states = new SwerveModuleState[4];
         for (Module mod : mSwerveMods) {
             states[mod.index] = mod.getState();
         }
         return states;
     }
 
+    /** Returns the measured module positions. The array is reused and updated every loop. */
     public SwerveModulePosition[] getPositions() {
-        SwerveModulePosition[] positions = new SwerveModulePosition[4];
         for (Module mod : mSwerveMods) {
             positions[mod.index] = mod.getPosition();
         }
@@ -148,9 +246,20 @@ public class Swerve extends SubsystemBase {
     }
 
     public Rotation2d getYaw() {
-        return (SwerveConstants.invertGyro)
-                ? Rotation2d.fromDegrees(360 - gyroInputs.yawPosition)
-                : Rotation2d.fromDegrees(gyroInputs.yawPosition);
+        double degrees = getYawDegrees();
+        if (yawDegrees != degrees) {
+            yawDegrees = degrees;
+            yaw = Rotation2d.fromDegrees(degrees);
+        }
+        return yaw;
+    }
+
+    private double getYawDegrees() {
+        return yawFromDegrees(gyroInputs.yawPosition);
+    }
+
+    private double yawFromDegrees(double degrees) {
+        return (SwerveConstants.invertGyro) ? 360 - degrees : degrees;
     }
 
     public Rotation2d getRoll() {
@@ -163,35 +272,118 @@ public class Swerve extends SubsystemBase {
 
     @Override
     public void periodic() {
+        periodicSection.start();
+        inputsSpan.begin();
+        // Takes the odometry thread's ticks once, before any IO reads them
+        OdometryThread.getInstance().drain();
         gyroIO.updateInputs(gyroInputs);
+        gyroInputsChannel.process(gyroInputs);
+        updateModules();
+        inputsSpan.end();
+
+        odometrySpan.begin();
+        updateOdometry();
+        odometrySpan.end();
+
+        // Poses are solved on the vision thread, frames submitted now are usually ready next loop.
+        // Frames from both cameras are fused first, so each measurement has its own timestamp.
+        visionFusionSpan.begin();
+        List<PoseMeasurement.Measurement> poses = s_Vision.getEstimatedGlobalPoses(poseHistory);
+        s_Vision.submitFrames(poseHistory);
+
+        for (PoseMeasurement.Measurement measurement : poses) {
+            addVisionMeasurement(measurement);
+        }
+        visionFusionSpan.end();
+
+        Pose2d pose = swervePoseEstimator.getEstimatedPosition();
+        field.setRobotPose(pose);
+
+        robotPoseChannel.record(pose);
+        moduleStatesChannel.record(getStates());
+
+        periodicSection.stop();
+    }
+
+    /** Reads every module's inputs and updates the measured velocity. Package private for tests. */
+    void updateModules() {
         for (Module mod : mSwerveMods) {
             mod.periodic();
         }
+        updateRobotVelocity();
+    }
 
-        swervePoseEstimator.update(getYaw(), getPositions());
-
-        List<Optional<PoseMeasurement.Measurement>> poses = s_Vision.getEstimatedGlobalPoses(getPose());
+    private void updateRobotVelocity() {
+        toChassisSpeeds(getStates(), robotVelocity);
+    }
 
-        for (int i = 0; i < poses.size(); i++) {
-            // this is a hack to get around an issue in `SwerveDrivePoseEstimator`
-            // where two measurements cannot share the same timestamp
-            double timestampOffset = 1e-9 * i;
+    /**
+     * Converts module states to chassis speeds in place, matching {@link
+     * SwerveDriveKinematics#toChassisSpeeds}. The modules are placed symmetrically around the
+     * center, so its least squares solution reduces to the mean module velocity and the mean
+     * tangential velocity over the module radius.
+     */
+    private void toChassisSpeeds(SwerveModuleState[] moduleStates, ChassisSpeeds speeds) {
+        double vx = 0.0;
+        double vy = 0.0;
+        double omega = 0.0;
+        for (int i = 0; i < moduleStates.length; i++) {
+            SwerveModuleState state = moduleStates[i];
+            Translation2d location = SwerveConstants.moduleTranslations[i];
+            double moduleVx = state.speedMetersPerSecond * state.angle.getCos();
+            double moduleVy = state.speedMetersPerSecond * state.angle.getSin();
+            vx += moduleVx;
+            vy += moduleVy;
+            omega += location.getX() * moduleVy - location.getY() * moduleVx;
+        }
+        speeds.vxMetersPerSecond = vx / moduleStates.length;
+        speeds.vyMetersPerSecond = vy / moduleStates.length;
+        speeds.omegaRadiansPerSecond = omega / moduleRadiusSquaredSum;
+    }
 
-            poses
-                    .get(i)
-                    .map(
-                            (measurement) -> {
-                                measurement.timestamp += timestampOffset;
-                                return measurement;
-                            })
-                    .ifPresent(this::addVisionMeasurement);
+    /**
+     * Applies every tick recorded by the odometry thread since the last loop. Every IO reads the same
+     * drained ticks, so sample i is the same tick for each module and the gyro. Falls back to a
+     * single update from the latest inputs when no samples are available (e.g. replaying older logs).
+     */
+    private void updateOdometry() {
+        int sampleCount = mSwerveMods[0].getOdometryTimestamps().length;
+        for (Module mod : mSwerveMods) {
+            if (mod.getOdometryTimestamps().length != sampleCount) {
+                sampleCount = 0;
+            }
         }
 
-        field.setRobotPose(getPose());
+        if (sampleCount == 0) {
+            swervePoseEstimator.update(getYaw(), getPositions());
+            poseHistory.addSample(
+                    Timer.getFPGATimestamp(), swervePoseEstimator.getEstimatedPosition(), robotVelocity);
+            return;
+        }
 
-        Logger.getInstance().processInputs("Drive/Gyro", gyroInputs);
-        Logger.getInstance().recordOutput("Odometry/RobotPose", getPose());
-        Logger.getInstance().recordOutput("SwerveModuleStates", getStates());
+        // Gyro IO that doesn't sample on the odometry thread uses its latest reading for every tick
+        boolean sampledYaw = gyroInputs.odometryYawPositions.length == sampleCount;
+        double[] timestamps = mSwerveMods[0].getOdometryTimestamps();
+        for (int i = 0; i < sampleCount; i++) {
+            for (Module mod : mSwerveMods) {
+                odometryPositions[mod.index] = mod.getOdometryPosition(i);
+            }
+
+            Rotation2d sampleYaw = getYaw();
+            if (sampledYaw) {
+                double degrees = yawFromDegrees(gyroInputs.odometryYawPositions[i]);
+                if (odometryYawDegrees != degrees) {
+                    odometryYawDegrees = degrees;
+                    odometryYaw = Rotation2d.fromDegrees(degrees);
+                }
+                sampleYaw = odometryYaw;
+            }
+
+            // The estimator still allocates its own pose and history entry for every update
+            swervePoseEstimator.updateWithTime(timestamps[i], sampleYaw, odometryPositions);
+            poseHistory.addSample(
+                    timestamps[i], swervePoseEstimator.getEstimatedPosition(), robotVelocity);
+        }
     }
 
     private void addVisionMeasurement(PoseMeasurement.Measurement measurement) {
@@ -18,6 +18,11 @@ public final class SwerveConstants {
     public static final int pigeonID = 6;
     public static final boolean invertGyro = false; // Always ensure Gyro is CCW+ CW-
 
+    /* Odometry Sampling */
+    public static final double odometryFrequency = 250.0; // Hz
+    public static final int odometryFramePeriodMs = (int) (1000.0 / odometryFrequency);
+    public static final int poseHistoryCapacity = 512; // ~2 seconds of odometry samples
+
     /* Drivetrain Constants */
     public static final double trackWidth = Units.inchesToMeters(20.75);
     public static final double wheelBase = Units.inchesToMeters(20.75);
@@ -30,12 +35,17 @@ public final class SwerveConstants {
     public static final double driveGearRatio = (6.12 / 1.0); // 6.12:1
     public static final double angleGearRatio = ((150.0 / 7.0) / 1.0); // 150/7:1
 
+    /* Module locations relative to robot center, in module index order (FL, FR, BL, BR) */
+    public static final Translation2d[] moduleTranslations =
+            new Translation2d[] {
+                new Translation2d(wheelBase / 2.0, trackWidth / 2.0),
+                new Translation2d(wheelBase / 2.0, -trackWidth / 2.0),
+                new Translation2d(-wheelBase / 2.0, trackWidth / 2.0),
+                new Translation2d(-wheelBase / 2.0, -trackWidth / 2.0)
+            };
+
     public static final SwerveDriveKinematics swerveKinematics =
-            new SwerveDriveKinematics(
-                    new Translation2d(wheelBase / 2.0, trackWidth / 2.0),
-                    new Translation2d(wheelBase / 2.0, -trackWidth / 2.0),
-                    new Translation2d(-wheelBase / 2.0, trackWidth / 2.0),
-                    new Translation2d(-wheelBase / 2.0, -trackWidth / 2.0));
+            new SwerveDriveKinematics(moduleTranslations);
 
     /* Swerve Compensation */
     public static final double voltageComp = 12.0;
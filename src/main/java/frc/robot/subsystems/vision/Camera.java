@@ -1,36 +1,89 @@
 package frc.robot.subsystems.vision;
 
-import edu.wpi.first.apriltag.AprilTagFieldLayout;
-import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Transform3d;
+import frc.VectorTools.CustomPhoton.AprilTagTable;
+import frc.VectorTools.CustomPhoton.MultiCameraPoseSolver;
 import frc.VectorTools.CustomPhoton.PhotonPoseEstimator;
 import frc.VectorTools.CustomPhoton.PhotonPoseEstimator.PoseStrategy;
-import frc.VectorTools.util.PoseMeasurement;
-import java.util.Optional;
-import org.littletonrobotics.junction.Logger;
-import org.photonvision.common.dataflow.structures.Packet;
-import org.photonvision.targeting.PhotonPipelineResult;
+import frc.lib.util.LogChannel;
+import frc.lib.util.RollingPercentiles;
+import java.util.Arrays;
 
 public class Camera {
+    private final String cameraName;
     private final CameraIO cameraIO;
 
     private final CameraIOInputsAutoLogged cameraInputs = new CameraIOInputsAutoLogged();
 
     private final Transform3d cameraPosition;
-    private final AprilTagFieldLayout aprilTagLayout;
-    private final PhotonPoseEstimator poseEstimator;
+    private final AprilTagTable aprilTags;
 
-    public Camera(CameraIO camera, Transform3d cameraPosition, AprilTagFieldLayout aprilTagLayout) {
+    // Only used by Vision's solver thread
+    private final PhotonPoseEstimator poseEstimator;
+    private final MultiCameraPoseSolver.CameraModel cameraModel;
+
+    // Gating results of the measurements this camera contributed to
+    private long gateAccepted = 0;
+    private long gateDownweighted = 0;
+    private long gateRejected = 0;
+
+    /*
+     * Milliseconds each frame spent in every stage between capture and being fused: the
+     * coprocessor's pipeline, NetworkTables and waiting for the loop to read it, waiting for the
+     * solver, solving, waiting for the loop to fuse it, and in total.
+     */
+    private static final String[] latencyStages = {
+        "Pipeline", "Transit", "Queue", "Solve", "Handoff", "Total"
+    };
+    private static final double[] noFrames = new double[] {};
+    // Latencies of the frames fused this loop, one row per stage, grown if a loop has more frames
+    private double[][] loopLatencies = new double[latencyStages.length][8];
+    private int loopFrameCount = 0;
+    private final RollingPercentiles[] latencyPercentiles =
+            new RollingPercentiles[latencyStages.length];
+
+    private final LogChannel.InputsChannel inputsChannel;
+    private final LogChannel.LongChannel gateAcceptedChannel;
+    private final LogChannel.LongChannel gateDownweightedChannel;
+    private final LogChannel.LongChannel gateRejectedChannel;
+    private final LogChannel.DoubleArrayChannel[] latencyChannels =
+            new LogChannel.DoubleArrayChannel[latencyStages.length];
+    // P50, P95 and P99 of each latency stage
+    private final LogChannel.DoubleChannel[][] latencyPercentileChannels =
+            new LogChannel.DoubleChannel[latencyStages.length][3];
+
+    /**
+     * @param cameraName name the camera's inputs and outputs are logged under
+     */
+    public Camera(
+            String cameraName, CameraIO camera, Transform3d cameraPosition, AprilTagTable aprilTags) {
+        this.cameraName = cameraName;
         this.cameraIO = camera;
         this.cameraPosition = cameraPosition;
-        this.aprilTagLayout = aprilTagLayout;
+        this.aprilTags = aprilTags;
 
         poseEstimator = generatePoseEstimator();
+        cameraModel = new MultiCameraPoseSolver.CameraModel(cameraPosition);
+
+        String prefix = "Cameras/" + cameraName;
+        inputsChannel = LogChannel.ofInputs(prefix);
+        gateAcceptedChannel = LogChannel.ofLong(prefix + "/GateAccepted");
+        gateDownweightedChannel = LogChannel.ofLong(prefix + "/GateDownweighted");
+        gateRejectedChannel = LogChannel.ofLong(prefix + "/GateRejected");
+        for (int i = 0; i < latencyStages.length; i++) {
+            latencyPercentiles[i] = new RollingPercentiles(VisionConstants.latencyWindow);
+
+            String stage = prefix + "/Latency/" + latencyStages[i];
+            latencyChannels[i] = LogChannel.ofDoubleArray(stage + "MS");
+            latencyPercentileChannels[i][0] = LogChannel.ofDouble(stage + "/P50");
+            latencyPercentileChannels[i][1] = LogChannel.ofDouble(stage + "/P95");
+            latencyPercentileChannels[i][2] = LogChannel.ofDouble(stage + "/P99");
+        }
     }
 
     private PhotonPoseEstimator generatePoseEstimator() {
         PhotonPoseEstimator positionEstimation =
-                new PhotonPoseEstimator(aprilTagLayout, PoseStrategy.MULTI_TAG_PNP, cameraPosition);
+                new PhotonPoseEstimator(aprilTags, PoseStrategy.MULTI_TAG_PNP, cameraPosition);
 
         positionEstimation.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
 
@@ -38,67 +91,121 @@ public class Camera {
     }
 
     public String getCameraName() {
-        return cameraInputs.cameraName;
+        return cameraName;
     }
 
     public void periodic() {
         cameraIO.updateInputs(cameraInputs);
-        Logger.getInstance().processInputs("Cameras/" + getCameraName(), cameraInputs);
+        inputsChannel.process(cameraInputs);
+        gateAcceptedChannel.record(gateAccepted);
+        gateDownweightedChannel.record(gateDownweighted);
+        gateRejectedChannel.record(gateRejected);
+
+        for (int i = 0; i < latencyStages.length; i++) {
+            RollingPercentiles percentiles = latencyPercentiles[i];
+            if (percentiles.size() == 0) {
+                continue;
+            }
+            latencyPercentileChannels[i][0].record(percentiles.getPercentile(50));
+            latencyPercentileChannels[i][1].record(percentiles.getPercentile(95));
+            latencyPercentileChannels[i][2].record(percentiles.getPercentile(99));
+        }
+    }
+
+    /** Counts the gating result of a measurement this camera contributed to. */
+    void recordGateResult(VisionGate.Result result) {
+        switch (result) {
+            case ACCEPTED:
+                gateAccepted++;
+                break;
+            case DOWNWEIGHTED:
+                gateDownweighted++;
+                break;
+            case REJECTED:
+                gateRejected++;
+                break;
+        }
+    }
+
+    /**
+     * Records the latency of a frame from this camera that contributed to a measurement. Logged with
+     * the loop's other frames by {@link #logLatencies()}.
+     *
+     * @param fusionTimestamp FPGA time in seconds the measurement was handed to the pose estimator
+     */
+    void recordLatency(FrameLatencyInputs.FrameLatency frame, double fusionTimestamp) {
+        if (loopFrameCount == loopLatencies[0].length) {
+            for (int i = 0; i < latencyStages.length; i++) {
+                loopLatencies[i] = Arrays.copyOf(loopLatencies[i], loopFrameCount * 2);
+            }
+        }
+        int j = loopFrameCount++;
+        loopLatencies[0][j] = frame.publishTimestamp - frame.captureTimestamp;
+        loopLatencies[1][j] = frame.readTimestamp - frame.publishTimestamp;
+        loopLatencies[2][j] = frame.solveStartTimestamp - frame.readTimestamp;
+        loopLatencies[3][j] = frame.solveEndTimestamp - frame.solveStartTimestamp;
+        loopLatencies[4][j] = fusionTimestamp - frame.solveEndTimestamp;
+        loopLatencies[5][j] = fusionTimestamp - frame.captureTimestamp;
+
+        for (int i = 0; i < latencyStages.length; i++) {
+            loopLatencies[i][j] *= 1000.0;
+            latencyPercentiles[i].add(loopLatencies[i][j]);
+        }
     }
 
-    public PhotonPoseEstimator getPoseEstimator() {
+    /**
+     * Logs every stage's latency as an array with one entry per frame recorded this loop, in the
+     * order they were fused. Call once per loop after every frame is recorded.
+     */
+    void logLatencies() {
+        for (int i = 0; i < latencyStages.length; i++) {
+            // A new array, the logger keeps a reference until the cycle is written
+            latencyChannels[i].record(
+                    loopFrameCount == 0 ? noFrames : Arrays.copyOf(loopLatencies[i], loopFrameCount));
+        }
+        loopFrameCount = 0;
+    }
+
+    /** Sets the AprilTag poses to use. Applied by the solver from its next frame. */
+    public void setAprilTags(AprilTagTable aprilTags) {
+        poseEstimator.setFieldTags(aprilTags);
+    }
+
+    PhotonPoseEstimator getPoseEstimator() {
         return poseEstimator;
     }
 
-    public PhotonPipelineResult getPhotonPipelineResult() {
-        PhotonPipelineResult result = new PhotonPipelineResult();
-        result.createFromPacket(new Packet(cameraInputs.targetData));
-        result.setTimestampSeconds(cameraInputs.targetTimestamp);
-        return result;
-    }
-
-    public Optional<PoseMeasurement.Measurement> getEstimatedPose(Pose2d prevEstimatedRobotPose) {
-        poseEstimator.setReferencePose(prevEstimatedRobotPose);
-
-        return poseEstimator
-                .update(getPhotonPipelineResult(), getCameraMatrixData(), getDistCoeffsData())
-                .flatMap(
-                        (result) -> {
-                            if (result.targetsUsed.get(0).getBestCameraToTarget().getTranslation().getNorm()
-                                            > VisionConstants.PoseEstimation.POSE_DISTANCE_CUTOFF
-                                    || result.targetsUsed.get(0).getPoseAmbiguity()
-                                            > VisionConstants.PoseEstimation.POSE_AMBIGUITY_CUTOFF) {
-                                return Optional.empty();
-                            }
-
-                            // Reject pose estimates outside the field
-                            if (result.estimatedPose.toPose2d().getX() < 0
-                                    || result.estimatedPose.toPose2d().getX()
-                                            > VisionConstants.FieldConstants.fieldLength
-                                    || result.estimatedPose.toPose2d().getY() < 0
-                                    || result.estimatedPose.toPose2d().getY()
-                                            > VisionConstants.FieldConstants.fieldWidth) {
-                                return Optional.empty();
-                            }
-
-                            Logger.getInstance()
-                                    .recordOutput("Odometry/" + getCameraName() + "/RobotPose", result.estimatedPose);
-
-                            return Optional.of(
-                                    new PoseMeasurement.Measurement(
-                                            result.timestampSeconds,
-                                            result.estimatedPose,
-                                            VisionConstants.PoseEstimation.PHOTON_VISION_STD_DEV.forMeasurement(
-                                                    result.targetsUsed.get(0).getBestCameraToTarget().getX(),
-                                                    result.targetsUsed.size())));
-                        });
-    }
-
-    public double[] getCameraMatrixData() {
+    MultiCameraPoseSolver.CameraModel getCameraModel() {
+        return cameraModel;
+    }
+
+    /*
+     * The IO replaces these arrays instead of writing into them, so they can be handed to the
+     * solver thread.
+     */
+
+    /** Returns the frames received this loop, serialized back to back. */
+    byte[] getFrameData() {
+        return cameraInputs.frameData;
+    }
+
+    double[] getFrameTimestamps() {
+        return cameraInputs.frameTimestamps;
+    }
+
+    double[] getFramePublishTimestamps() {
+        return cameraInputs.framePublishTimestamps;
+    }
+
+    double getReadTimestamp() {
+        return cameraInputs.readTimestamp;
+    }
+
+    double[] getCameraMatrixData() {
         return cameraInputs.cameraMatrixData;
     }
 
-    public double[] getDistCoeffsData() {
+    double[] getDistCoeffsData() {
         return cameraInputs.distCoeffsData;
     }
 }
@@ -8,8 +8,13 @@ public interface CameraIO {
         public String cameraName = "";
         public boolean connected = false;
         public boolean driverMode = false;
-        public byte[] targetData = {};
-        public double targetTimestamp = 0.0;
+        /* Every frame received since the last loop, serialized back to back */
+        public byte[] frameData = {};
+        public double[] frameTimestamps = {};
+        /* When each frame was published by the coprocessor, and when this loop read them */
+        public double[] framePublishTimestamps = {};
+        public double readTimestamp = 0.0;
+        public long droppedFrames = 0;
         public double[] cameraMatrixData = {};
         public double[] distCoeffsData = {};
     }
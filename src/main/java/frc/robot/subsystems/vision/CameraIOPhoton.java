@@ -1,16 +1,54 @@
 package frc.robot.subsystems.vision;
 
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.RawSubscriber;
+import edu.wpi.first.networktables.TimestampedRaw;
+import edu.wpi.first.wpilibj.Timer;
 import org.photonvision.PhotonCamera;
 import org.photonvision.common.dataflow.structures.Packet;
-import org.photonvision.targeting.PhotonPipelineResult;
 
 public class CameraIOPhoton implements CameraIO {
     private PhotonCamera camera;
 
+    /*
+     * PhotonCamera deserializes the latest result on every call, even when no new frame has
+     * arrived. The serialized frames are read straight from NetworkTables instead and only new
+     * ones are passed on, without being deserialized and serialized again.
+     */
+    private final RawSubscriber rawBytesSubscriber;
+    private final DoubleArraySubscriber cameraMatrixSubscriber;
+    private final DoubleArraySubscriber distCoeffsSubscriber;
+
+    private static final byte[] noFrameData = {};
+    private static final double[] noFrameTimestamps = {};
+
+    private long cameraMatrixChange = -1;
+    private long distCoeffsChange = -1;
+
     public CameraIOPhoton(String cameraName) {
         camera = new PhotonCamera(cameraName);
 
         camera.setDriverMode(false);
+
+        // Same topics and options PhotonCamera subscribes with
+        NetworkTable cameraTable =
+                NetworkTableInstance.getDefault().getTable("photonvision").getSubTable(cameraName);
+        rawBytesSubscriber =
+                cameraTable
+                        .getRawTopic("rawBytes")
+                        .subscribe(
+                                "rawBytes",
+                                new byte[] {},
+                                PubSubOption.periodic(0.01),
+                                PubSubOption.sendAll(true),
+                                PubSubOption.pollStorage(2 * VisionConstants.maxFramesPerCycle));
+        cameraMatrixSubscriber =
+                cameraTable.getDoubleArrayTopic("cameraIntrinsics").subscribe(new double[] {});
+        distCoeffsSubscriber =
+                cameraTable.getDoubleArrayTopic("cameraDistortion").subscribe(new double[] {});
     }
 
     @Override
@@ -18,17 +56,62 @@ public class CameraIOPhoton implements CameraIO {
         inputs.cameraName = camera.getName();
         inputs.connected = camera.isConnected();
         inputs.driverMode = camera.getDriverMode();
-        PhotonPipelineResult latestResult = camera.getLatestResult();
-        inputs.targetData =
-                latestResult.populatePacket(new Packet(latestResult.getPacketSize())).getData();
-        inputs.targetTimestamp = camera.getLatestResult().getTimestampSeconds();
-        inputs.cameraMatrixData =
-                camera.getCameraMatrix().isPresent()
-                        ? camera.getCameraMatrix().get().getData()
-                        : new double[] {};
-        inputs.distCoeffsData =
-                camera.getDistCoeffs().isPresent()
-                        ? camera.getDistCoeffs().get().getData()
-                        : new double[] {};
+
+        // Every frame received since the last call. NetworkTables only stores a bounded number,
+        // so a long stall can drop frames before they are counted here.
+        TimestampedRaw[] frames = rawBytesSubscriber.readQueue();
+        inputs.readTimestamp = Timer.getFPGATimestamp();
+        int first = Math.max(0, frames.length - VisionConstants.maxFramesPerCycle);
+        int count = frames.length - first;
+        inputs.droppedFrames += first;
+
+        if (count == 0) {
+            inputs.frameData = noFrameData;
+            inputs.frameTimestamps = noFrameTimestamps;
+            inputs.framePublishTimestamps = noFrameTimestamps;
+        } else if (count == 1) {
+            // A single frame is passed on without copying
+            inputs.frameData = frames[first].value;
+            inputs.frameTimestamps = new double[] {getTimestamp(frames[first])};
+            inputs.framePublishTimestamps = new double[] {frames[first].timestamp / 1e6};
+        } else {
+            int size = 0;
+            for (int i = first; i < frames.length; i++) {
+                size += frames[i].value.length;
+            }
+
+            inputs.frameData = new byte[size];
+            inputs.frameTimestamps = new double[count];
+            inputs.framePublishTimestamps = new double[count];
+            int offset = 0;
+            for (int i = first; i < frames.length; i++) {
+                byte[] frame = frames[i].value;
+                System.arraycopy(frame, 0, inputs.frameData, offset, frame.length);
+                offset += frame.length;
+                inputs.frameTimestamps[i - first] = getTimestamp(frames[i]);
+                inputs.framePublishTimestamps[i - first] = frames[i].timestamp / 1e6;
+            }
+        }
+
+        // Calibration is only copied when it is republished
+        if (cameraMatrixSubscriber.getLastChange() != cameraMatrixChange) {
+            cameraMatrixChange = cameraMatrixSubscriber.getLastChange();
+            inputs.cameraMatrixData = cameraMatrixSubscriber.get();
+        }
+        if (distCoeffsSubscriber.getLastChange() != distCoeffsChange) {
+            distCoeffsChange = distCoeffsSubscriber.getLastChange();
+            inputs.distCoeffsData = distCoeffsSubscriber.get();
+        }
+    }
+
+    /**
+     * Returns the capture time of a frame in seconds, the publish time minus the latency stored in
+     * the first field of the serialized PhotonPipelineResult. NetworkTables timestamps values with
+     * the publisher's time, converted to the robot's.
+     */
+    private static double getTimestamp(TimestampedRaw frame) {
+        double latencyMillis =
+                frame.value.length < Double.BYTES ? 0.0 : new Packet(frame.value).decodeDouble();
+        return frame.timestamp / 1e6 - latencyMillis / 1e3;
     }
 }
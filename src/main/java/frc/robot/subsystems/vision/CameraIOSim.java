@@ -0,0 +1,224 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFieldLayout.OriginPosition;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.VectorTools.CustomPhoton.AprilTagTable;
+import frc.VectorTools.CustomPhoton.MultiCameraPoseSolver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+/**
+ * Simulated camera that renders the 2023 field's AprilTags as PhotonVision would detect them from
+ * a ground truth robot pose. Frames are captured at {@link VisionConstants.Sim#frameRate} and
+ * published after a noisy latency, with noise added to the detected corners and target poses.
+ */
+public class CameraIOSim implements CameraIO {
+    private final String cameraName;
+    private final Transform3d robotToCamera;
+    private final Supplier<Pose2d> robotPose;
+    private final MultiCameraPoseSolver.CameraModel cameraModel;
+    private final Random random;
+
+    private AprilTagFieldLayout aprilTagLayout;
+    private AprilTagTable blueAprilTags;
+    private AprilTagTable redAprilTags;
+
+    private final double[] cameraMatrixData = VisionConstants.Sim.cameraMatrixData.clone();
+    private final double[] distCoeffsData = VisionConstants.Sim.distCoeffsData.clone();
+    private final double[] corners = new double[8];
+
+    private double nextCaptureTimestamp = -1.0;
+    private double nextPublishTimestamp = 0.0;
+
+    /**
+     * @param cameraName name the camera's inputs are logged under
+     * @param robotToCamera transform from the center of the robot to the camera
+     * @param robotPose ground truth pose of the robot
+     */
+    public CameraIOSim(String cameraName, Transform3d robotToCamera, Supplier<Pose2d> robotPose) {
+        this.cameraName = cameraName;
+        this.robotToCamera = robotToCamera;
+        this.robotPose = robotPose;
+        // Seeded by name, so every run and camera renders the same noise
+        random = new Random(cameraName.hashCode());
+
+        cameraModel = new MultiCameraPoseSolver.CameraModel(robotToCamera);
+        cameraModel.setCalibration(cameraMatrixData, distCoeffsData);
+
+        try {
+            aprilTagLayout = AprilTagFields.k2023ChargedUp.loadAprilTagLayoutField();
+            blueAprilTags = new AprilTagTable(aprilTagLayout, OriginPosition.kBlueAllianceWallRightSide);
+            redAprilTags = new AprilTagTable(aprilTagLayout, OriginPosition.kRedAllianceWallRightSide);
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to load AprilTagFieldLayout", e.getStackTrace());
+        }
+    }
+
+    @Override
+    public void updateInputs(CameraIOInputs inputs) {
+        inputs.cameraName = cameraName;
+        inputs.connected = aprilTagLayout != null;
+        inputs.driverMode = false;
+        inputs.cameraMatrixData = cameraMatrixData;
+        inputs.distCoeffsData = distCoeffsData;
+
+        double now = Timer.getFPGATimestamp();
+        inputs.readTimestamp = now;
+        if (nextCaptureTimestamp < 0) {
+            nextCaptureTimestamp = now;
+            nextPublishTimestamp = now + sampleLatency();
+        }
+
+        // Every frame published since the last call, rendered from the current pose since there is
+        // no pose history at capture time
+        List<byte[]> frames = new ArrayList<>();
+        List<Double> captureTimestamps = new ArrayList<>();
+        List<Double> publishTimestamps = new ArrayList<>();
+        while (nextPublishTimestamp <= now) {
+            if (inputs.connected) {
+                frames.add(render(robotPose.get(), nextPublishTimestamp - nextCaptureTimestamp));
+                captureTimestamps.add(nextCaptureTimestamp);
+                publishTimestamps.add(nextPublishTimestamp);
+            }
+            nextCaptureTimestamp += 1.0 / VisionConstants.Sim.frameRate;
+            // Frames are published in order, even if a later one was processed faster
+            nextPublishTimestamp =
+                    Math.max(nextPublishTimestamp, nextCaptureTimestamp + sampleLatency());
+        }
+
+        int first = Math.max(0, frames.size() - VisionConstants.maxFramesPerCycle);
+        int count = frames.size() - first;
+        inputs.droppedFrames += first;
+
+        int size = 0;
+        for (int i = first; i < frames.size(); i++) {
+            size += frames.get(i).length;
+        }
+        inputs.frameData = new byte[size];
+        inputs.frameTimestamps = new double[count];
+        inputs.framePublishTimestamps = new double[count];
+        int offset = 0;
+        for (int i = first; i < frames.size(); i++) {
+            byte[] frame = frames.get(i);
+            System.arraycopy(frame, 0, inputs.frameData, offset, frame.length);
+            offset += frame.length;
+            inputs.frameTimestamps[i - first] = captureTimestamps.get(i);
+            inputs.framePublishTimestamps[i - first] = publishTimestamps.get(i);
+        }
+    }
+
+    /** Renders and serializes the tags the camera sees with the robot at the given pose. */
+    private byte[] render(Pose2d robotPose, double latencySeconds) {
+        AprilTagTable aprilTags =
+                DriverStation.getAlliance() == DriverStation.Alliance.Blue ? blueAprilTags : redAprilTags;
+        Pose3d cameraPose = new Pose3d(robotPose).transformBy(robotToCamera);
+
+        List<PhotonTrackedTarget> targets = new ArrayList<>();
+        for (AprilTag tag : aprilTagLayout.getTags()) {
+            Pose3d tagPose = aprilTags.getTagPose(tag.ID);
+            Transform3d cameraToTarget = new Transform3d(cameraPose, tagPose);
+            Translation3d tagToCamera = cameraPose.getTranslation().minus(tagPose.getTranslation());
+
+            // The tag's face points along its x axis, skip tags facing away or too far to detect
+            Translation3d tagNormal = new Translation3d(1, 0, 0).rotateBy(tagPose.getRotation());
+            double facing =
+                    tagNormal.getX() * tagToCamera.getX()
+                            + tagNormal.getY() * tagToCamera.getY()
+                            + tagNormal.getZ() * tagToCamera.getZ();
+            if (facing <= 0
+                    || cameraToTarget.getTranslation().getNorm() > VisionConstants.Sim.maxTagDistance
+                    || !MultiCameraPoseSolver.projectTag(cameraModel, robotPose, tagPose, corners)
+                    || !inImage(corners)) {
+                continue;
+            }
+
+            targets.add(createTarget(tag.ID, cameraToTarget));
+        }
+
+        PhotonPipelineResult result = new PhotonPipelineResult(latencySeconds * 1000.0, targets);
+        Packet packet = new Packet(result.getPacketSize());
+        result.populatePacket(packet);
+        return packet.getData();
+    }
+
+    /** Builds a target from the projected corners in {@link #corners}, adding noise. */
+    private PhotonTrackedTarget createTarget(int id, Transform3d cameraToTarget) {
+        List<TargetCorner> detectedCorners = new ArrayList<>();
+        double centerX = 0.0;
+        double centerY = 0.0;
+        for (int i = 0; i < 4; i++) {
+            double x = corners[i * 2] + random.nextGaussian() * VisionConstants.Sim.cornerNoisePixels;
+            double y = corners[i * 2 + 1] + random.nextGaussian() * VisionConstants.Sim.cornerNoisePixels;
+            detectedCorners.add(new TargetCorner(x, y));
+            centerX += x / 4;
+            centerY += y / 4;
+        }
+
+        // Shoelace formula for the area of the detected quadrilateral, as a percent of the image
+        double area = 0.0;
+        for (int i = 0; i < 4; i++) {
+            TargetCorner a = detectedCorners.get(i);
+            TargetCorner b = detectedCorners.get((i + 1) % 4);
+            area += a.x * b.y - b.x * a.y;
+        }
+        double imageArea = VisionConstants.Sim.imageWidth * VisionConstants.Sim.imageHeight;
+        area = Math.abs(area) / 2 / imageArea * 100;
+
+        double distance = cameraToTarget.getTranslation().getNorm();
+        Translation3d noise =
+                new Translation3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian())
+                        .times(distance * VisionConstants.Sim.poseNoisePerMeter);
+        Transform3d noisyCameraToTarget =
+                new Transform3d(cameraToTarget.getTranslation().plus(noise), cameraToTarget.getRotation());
+
+        double fx = cameraMatrixData[0];
+        double fy = cameraMatrixData[4];
+        return new PhotonTrackedTarget(
+                Math.toDegrees(Math.atan((centerX - cameraMatrixData[2]) / fx)),
+                -Math.toDegrees(Math.atan((centerY - cameraMatrixData[5]) / fy)),
+                area,
+                0,
+                id,
+                noisyCameraToTarget,
+                noisyCameraToTarget,
+                Math.min(1.0, distance * VisionConstants.Sim.ambiguityPerMeter),
+                detectedCorners,
+                detectedCorners);
+    }
+
+    private static boolean inImage(double[] corners) {
+        for (int i = 0; i < 4; i++) {
+            double x = corners[i * 2];
+            double y = corners[i * 2 + 1];
+            if (x < 0
+                    || x > VisionConstants.Sim.imageWidth
+                    || y < 0
+                    || y > VisionConstants.Sim.imageHeight) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double sampleLatency() {
+        double latency =
+                VisionConstants.Sim.latencySeconds
+                        + random.nextGaussian() * VisionConstants.Sim.latencyStdDevSeconds;
+        return Math.max(0.0, latency);
+    }
+}
@@ -0,0 +1,89 @@
+package frc.robot.subsystems.vision;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * Timing of the camera frames behind the vision measurements solved off the main thread, logged as
+ * inputs alongside them so the latencies can be reviewed in replay.
+ */
+public class FrameLatencyInputs implements LoggableInputs {
+    /** When one frame passed through each stage between capture and solving, in FPGA seconds. */
+    public static class FrameLatency {
+        public final int cameraIndex;
+        public final double captureTimestamp;
+        public final double publishTimestamp;
+        public final double readTimestamp;
+        public final double solveStartTimestamp;
+        public final double solveEndTimestamp;
+
+        public FrameLatency(
+                int cameraIndex,
+                double captureTimestamp,
+                double publishTimestamp,
+                double readTimestamp,
+                double solveStartTimestamp,
+                double solveEndTimestamp) {
+            this.cameraIndex = cameraIndex;
+            this.captureTimestamp = captureTimestamp;
+            this.publishTimestamp = publishTimestamp;
+            this.readTimestamp = readTimestamp;
+            this.solveStartTimestamp = solveStartTimestamp;
+            this.solveEndTimestamp = solveEndTimestamp;
+        }
+    }
+
+    public final List<FrameLatency> frames = new ArrayList<>();
+
+    @Override
+    public void toLog(LogTable table) {
+        int count = frames.size();
+        long[] cameraIndices = new long[count];
+        double[] capture = new double[count];
+        double[] publish = new double[count];
+        double[] read = new double[count];
+        double[] solveStart = new double[count];
+        double[] solveEnd = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            FrameLatency frame = frames.get(i);
+            cameraIndices[i] = frame.cameraIndex;
+            capture[i] = frame.captureTimestamp;
+            publish[i] = frame.publishTimestamp;
+            read[i] = frame.readTimestamp;
+            solveStart[i] = frame.solveStartTimestamp;
+            solveEnd[i] = frame.solveEndTimestamp;
+        }
+
+        table.put("CameraIndices", cameraIndices);
+        table.put("CaptureTimestamps", capture);
+        table.put("PublishTimestamps", publish);
+        table.put("ReadTimestamps", read);
+        table.put("SolveStartTimestamps", solveStart);
+        table.put("SolveEndTimestamps", solveEnd);
+    }
+
+    @Override
+    public void fromLog(LogTable table) {
+        long[] cameraIndices = table.getIntegerArray("CameraIndices", new long[] {});
+        double[] capture = table.getDoubleArray("CaptureTimestamps", new double[] {});
+        double[] publish = table.getDoubleArray("PublishTimestamps", new double[] {});
+        double[] read = table.getDoubleArray("ReadTimestamps", new double[] {});
+        double[] solveStart = table.getDoubleArray("SolveStartTimestamps", new double[] {});
+        double[] solveEnd = table.getDoubleArray("SolveEndTimestamps", new double[] {});
+
+        frames.clear();
+        for (int i = 0; i < cameraIndices.length; i++) {
+            frames.add(
+                    new FrameLatency(
+                            (int) cameraIndices[i],
+                            capture[i],
+                            publish[i],
+                            read[i],
+                            solveStart[i],
+                            solveEnd[i]));
+        }
+    }
+}
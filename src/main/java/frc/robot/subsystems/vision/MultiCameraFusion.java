@@ -0,0 +1,318 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.wpilibj.Timer;
+import frc.VectorTools.CustomPhoton.AprilTagTable;
+import frc.VectorTools.CustomPhoton.MultiCameraPoseSolver;
+import frc.VectorTools.CustomPhoton.PhotonPoseEstimator;
+import frc.VectorTools.CustomPhoton.PhotonPoseEstimator.PoseStrategy;
+import frc.VectorTools.util.PoseMeasurement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Groups frames from every camera that were captured within {@link
+ * VisionConstants#fusionWindowSeconds} of each other, and solves one pose per group from the tag
+ * corners seen by all of its cameras. Each camera's own estimate is used as the initial guess, and
+ * as the result if the joint solve fails.
+ *
+ * <p>Only used by Vision's solver thread.
+ */
+class MultiCameraFusion {
+    /** How much work is done per frame, from the most accurate and expensive to the cheapest. */
+    enum SolveLevel {
+        /** Each camera's multi-tag estimate, refined with the corners from every camera. */
+        FUSED(PoseStrategy.MULTI_TAG_PNP, true, false),
+        /** The multi-tag estimate of the camera seeing the most tags. */
+        MULTI_TAG(PoseStrategy.MULTI_TAG_PNP, false, false),
+        /** The lowest ambiguity single tag estimate of the camera seeing the most tags. */
+        LOWEST_AMBIGUITY(PoseStrategy.LOWEST_AMBIGUITY, false, false),
+        /** Like LOWEST_AMBIGUITY, but only each camera's latest frame is solved. */
+        LATEST_ONLY(PoseStrategy.LOWEST_AMBIGUITY, false, true);
+
+        private final PoseStrategy strategy;
+        private final boolean refine;
+        private final boolean latestOnly;
+
+        SolveLevel(PoseStrategy strategy, boolean refine, boolean latestOnly) {
+            this.strategy = strategy;
+            this.refine = refine;
+            this.latestOnly = latestOnly;
+        }
+    }
+
+    private static class Frame {
+        private final PhotonPipelineResult result = new PhotonPipelineResult();
+        private int cameraIndex;
+        private double publishTimestamp;
+        private double readTimestamp;
+        private double[] cameraMatrixData;
+        private double[] distCoeffsData;
+        private Pose2d referencePose;
+    }
+
+    private final List<Camera> cameras;
+    private final MultiCameraPoseSolver solver =
+            new MultiCameraPoseSolver(VisionConstants.maxFusedCorners);
+
+    // Frames are reused between batches, only the first frameCount are in use
+    private final ArrayList<Frame> frames = new ArrayList<>();
+    private int frameCount = 0;
+
+    // The frame from each camera in the group being solved
+    private final Frame[] group;
+
+    private SolveLevel solveLevel = SolveLevel.FUSED;
+
+    MultiCameraFusion(List<Camera> cameras) {
+        this.cameras = cameras;
+        group = new Frame[cameras.size()];
+    }
+
+    /**
+     * Adds the frames one camera received in a loop. Frames without targets are skipped.
+     *
+     * @param cameraIndex index of the camera in the list passed to the constructor
+     * @param frameData the frames serialized back to back
+     * @param frameTimestamps the capture time of each frame
+     * @param framePublishTimestamps the time each frame was published by the coprocessor
+     * @param readTimestamp the time the frames were read by the robot loop
+     * @param referencePoses the estimated robot pose at each frame's timestamp, or null
+     */
+    void addFrames(
+            int cameraIndex,
+            byte[] frameData,
+            double[] frameTimestamps,
+            double[] framePublishTimestamps,
+            double readTimestamp,
+            double[] cameraMatrixData,
+            double[] distCoeffsData,
+            Pose2d[] referencePoses) {
+        // Each result reads exactly its own bytes, so the frames are read in order from one packet
+        // wrapping the batch without copying it
+        Packet packet = new Packet(frameData);
+        for (int i = 0; i < frameTimestamps.length; i++) {
+            if (frameCount == frames.size()) {
+                frames.add(new Frame());
+            }
+            Frame frame = frames.get(frameCount);
+
+            frame.result.createFromPacket(packet);
+            if (!frame.result.hasTargets()) {
+                continue;
+            }
+            frame.result.setTimestampSeconds(frameTimestamps[i]);
+            frame.cameraIndex = cameraIndex;
+            frame.publishTimestamp = framePublishTimestamps[i];
+            frame.readTimestamp = readTimestamp;
+            frame.cameraMatrixData = cameraMatrixData;
+            frame.distCoeffsData = distCoeffsData;
+            frame.referencePose = referencePoses[i];
+            frameCount++;
+        }
+    }
+
+    /** Sets how much work is done per frame, for the frames solved from now on. */
+    void setSolveLevel(SolveLevel solveLevel) {
+        if (solveLevel == this.solveLevel) {
+            return;
+        }
+        this.solveLevel = solveLevel;
+        for (Camera camera : cameras) {
+            camera.getPoseEstimator().setPrimaryStrategy(solveLevel.strategy);
+        }
+    }
+
+    /** Removes every added frame. */
+    void clear() {
+        frameCount = 0;
+    }
+
+    /**
+     * Solves every group of added frames in time order.
+     *
+     * @param output receives the measurement solved from each group
+     * @param latencyOutput receives the timing of every frame behind each measurement
+     * @return the number of frames solved
+     */
+    int solve(
+            Consumer<PoseMeasurement.Measurement> output,
+            Consumer<FrameLatencyInputs.FrameLatency> latencyOutput) {
+        // Insertion sort by timestamp, there are only a few frames
+        for (int i = 1; i < frameCount; i++) {
+            Frame frame = frames.get(i);
+            int j = i - 1;
+            while (j >= 0 && timestamp(frames.get(j)) > timestamp(frame)) {
+                frames.set(j + 1, frames.get(j));
+                j--;
+            }
+            frames.set(j + 1, frame);
+        }
+
+        if (solveLevel.latestOnly) {
+            keepLatestFrames();
+        }
+
+        int start = 0;
+        while (start < frameCount) {
+            Arrays.fill(group, null);
+            Frame first = frames.get(start);
+            group[first.cameraIndex] = first;
+
+            int end = start + 1;
+            while (end < frameCount) {
+                Frame frame = frames.get(end);
+                if (timestamp(frame) - timestamp(first) > VisionConstants.fusionWindowSeconds
+                        || group[frame.cameraIndex] != null) {
+                    break;
+                }
+                group[frame.cameraIndex] = frame;
+                end++;
+            }
+
+            double solveStartTimestamp = Timer.getFPGATimestamp();
+            Optional<PoseMeasurement.Measurement> measurement = solveGroup();
+            double solveEndTimestamp = Timer.getFPGATimestamp();
+
+            if (measurement.isPresent()) {
+                for (Frame frame : group) {
+                    if (frame != null) {
+                        latencyOutput.accept(
+                                new FrameLatencyInputs.FrameLatency(
+                                        frame.cameraIndex,
+                                        timestamp(frame),
+                                        frame.publishTimestamp,
+                                        frame.readTimestamp,
+                                        solveStartTimestamp,
+                                        solveEndTimestamp));
+                    }
+                }
+                output.accept(measurement.get());
+            }
+            start = end;
+        }
+        return frameCount;
+    }
+
+    /** Drops all but each camera's latest frame, keeping the frames in time order. */
+    private void keepLatestFrames() {
+        Arrays.fill(group, null);
+        for (int i = frameCount - 1; i >= 0; i--) {
+            Frame frame = frames.get(i);
+            if (group[frame.cameraIndex] == null) {
+                group[frame.cameraIndex] = frame;
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < frameCount; i++) {
+            Frame frame = frames.get(i);
+            if (group[frame.cameraIndex] == frame) {
+                // Swap so the dropped frame objects stay in the list to be reused
+                frames.set(i, frames.get(kept));
+                frames.set(kept, frame);
+                kept++;
+            }
+        }
+        frameCount = kept;
+    }
+
+    private Optional<PoseMeasurement.Measurement> solveGroup() {
+        EstimatedRobotPose initialEstimate = null;
+        double timestampSum = 0.0;
+        int frameTotal = 0;
+        int tagCount = 0;
+        long cameraMask = 0;
+
+        solver.clear();
+        for (Frame frame : group) {
+            if (frame == null) {
+                continue;
+            }
+            timestampSum += timestamp(frame);
+            frameTotal++;
+
+            Camera camera = cameras.get(frame.cameraIndex);
+            PhotonPoseEstimator poseEstimator = camera.getPoseEstimator();
+            if (frame.referencePose != null) {
+                poseEstimator.setReferencePose(frame.referencePose);
+            }
+
+            // The camera seeing the most tags gives the best initial guess
+            Optional<EstimatedRobotPose> estimate =
+                    poseEstimator.update(frame.result, frame.cameraMatrixData, frame.distCoeffsData);
+            if (estimate.isPresent()
+                    && (initialEstimate == null
+                            || estimate.get().targetsUsed.size() > initialEstimate.targetsUsed.size())) {
+                initialEstimate = estimate.get();
+            }
+
+            MultiCameraPoseSolver.CameraModel cameraModel = camera.getCameraModel();
+            cameraModel.setCalibration(frame.cameraMatrixData, frame.distCoeffsData);
+            AprilTagTable aprilTags = poseEstimator.getFieldTags();
+            for (PhotonTrackedTarget target : frame.result.getTargets()) {
+                Pose3d tagPose = aprilTags.getTagPose(target.getFiducialId());
+                if (tagPose == null) {
+                    continue;
+                }
+                if (solveLevel.refine) {
+                    solver.addTarget(cameraModel, tagPose, target.getDetectedCorners());
+                }
+
+                tagCount++;
+                cameraMask |= 1L << frame.cameraIndex;
+            }
+        }
+
+        if (initialEstimate == null) {
+            return Optional.empty();
+        }
+
+        // Filtered on the seed estimate's primary target, as each camera's estimates were before
+        PhotonTrackedTarget primaryTarget = initialEstimate.targetsUsed.get(0);
+        if (distance(primaryTarget) > VisionConstants.PoseEstimation.POSE_DISTANCE_CUTOFF
+                || primaryTarget.getPoseAmbiguity()
+                        > VisionConstants.PoseEstimation.POSE_AMBIGUITY_CUTOFF) {
+            return Optional.empty();
+        }
+
+        Pose3d pose = initialEstimate.estimatedPose;
+        if (solveLevel.refine
+                && solver.solve(pose.toPose2d())
+                && solver.getRmsError() < VisionConstants.PoseEstimation.MAX_REPROJECTION_ERROR) {
+            pose = new Pose3d(solver.getPose());
+        }
+
+        // Reject pose estimates outside the field
+        if (pose.getX() < 0
+                || pose.getX() > VisionConstants.FieldConstants.fieldLength
+                || pose.getY() < 0
+                || pose.getY() > VisionConstants.FieldConstants.fieldWidth) {
+            return Optional.empty();
+        }
+
+        return Optional.of(
+                new PoseMeasurement.Measurement(
+                        timestampSum / frameTotal,
+                        pose,
+                        VisionConstants.PoseEstimation.PHOTON_VISION_STD_DEV.forMeasurement(
+                                primaryTarget.getBestCameraToTarget().getX(), tagCount),
+                        cameraMask));
+    }
+
+    private static double timestamp(Frame frame) {
+        return frame.result.getTimestampSeconds();
+    }
+
+    private static double distance(PhotonTrackedTarget target) {
+        return target.getBestCameraToTarget().getTranslation().getNorm();
+    }
+}
@@ -0,0 +1,85 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.VectorTools.util.PoseMeasurement.Measurement;
+import java.util.ArrayList;
+import java.util.List;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * Vision measurements solved off the main thread, logged as inputs so replay uses the logged
+ * solutions instead of solving again.
+ */
+public class PoseMeasurementInputs implements LoggableInputs {
+    private static final int POSE_SIZE = 7;
+    private static final int STD_DEV_SIZE = 3;
+
+    public final List<Measurement> measurements = new ArrayList<>();
+
+    @Override
+    public void toLog(LogTable table) {
+        int count = measurements.size();
+        double[] timestamps = new double[count];
+        double[] poses = new double[count * POSE_SIZE];
+        double[] stdDevs = new double[count * STD_DEV_SIZE];
+        long[] sources = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            Measurement measurement = measurements.get(i);
+            timestamps[i] = measurement.timestamp;
+            sources[i] = measurement.sources;
+
+            Translation3d translation = measurement.pose.getTranslation();
+            Quaternion rotation = measurement.pose.getRotation().getQuaternion();
+            int pose = i * POSE_SIZE;
+            poses[pose] = translation.getX();
+            poses[pose + 1] = translation.getY();
+            poses[pose + 2] = translation.getZ();
+            poses[pose + 3] = rotation.getW();
+            poses[pose + 4] = rotation.getX();
+            poses[pose + 5] = rotation.getY();
+            poses[pose + 6] = rotation.getZ();
+
+            for (int j = 0; j < STD_DEV_SIZE; j++) {
+                stdDevs[i * STD_DEV_SIZE + j] = measurement.stdDeviation.get(j, 0);
+            }
+        }
+
+        table.put("Timestamps", timestamps);
+        table.put("Poses", poses);
+        table.put("StdDevs", stdDevs);
+        table.put("Sources", sources);
+    }
+
+    @Override
+    public void fromLog(LogTable table) {
+        double[] timestamps = table.getDoubleArray("Timestamps", new double[] {});
+        double[] poses = table.getDoubleArray("Poses", new double[] {});
+        double[] stdDevs = table.getDoubleArray("StdDevs", new double[] {});
+        long[] sources = table.getIntegerArray("Sources", new long[timestamps.length]);
+
+        measurements.clear();
+        for (int i = 0; i < timestamps.length; i++) {
+            int pose = i * POSE_SIZE;
+            int stdDev = i * STD_DEV_SIZE;
+            measurements.add(
+                    new Measurement(
+                            timestamps[i],
+                            new Pose3d(
+                                    new Translation3d(poses[pose], poses[pose + 1], poses[pose + 2]),
+                                    new Rotation3d(
+                                            new Quaternion(
+                                                    poses[pose + 3],
+                                                    poses[pose + 4],
+                                                    poses[pose + 5],
+                                                    poses[pose + 6]))),
+                            VecBuilder.fill(stdDevs[stdDev], stdDevs[stdDev + 1], stdDevs[stdDev + 2]),
+                            sources[i]));
+        }
+    }
+}
@@ -5,62 +5,388 @@ import edu.wpi.first.apriltag.AprilTagFieldLayout.OriginPosition;
 import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.VectorTools.CustomPhoton.PhotonPoseEstimator;
+import frc.VectorTools.CustomPhoton.AprilTagTable;
+import frc.VectorTools.util.PoseHistory;
 import frc.VectorTools.util.PoseMeasurement;
-import frc.VectorTools.util.PoseMeasurement.Measurement;
+import frc.lib.util.LogChannel;
+import frc.lib.util.LoopProfiler;
+import frc.lib.util.LoopTracer;
+import frc.robot.Constants;
+import frc.robot.Constants.Mode;
+import frc.robot.subsystems.vision.MultiCameraFusion.SolveLevel;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.littletonrobotics.junction.LoggedRobot;
+import org.littletonrobotics.junction.Logger;
 
 public class Vision extends SubsystemBase {
+    private final LoopProfiler.Section periodicSection =
+            LoopProfiler.getInstance().section("Subsystems/Vision");
+    // Only recorded by the solver thread
+    private final LoopTracer.Span solveSpan = LoopTracer.getInstance().span("Vision/Solve");
+
     private ArrayList<Camera> cameras;
-    private AprilTagFieldLayout aprilTagLayout;
+
+    // Tag poses for each alliance origin, built once and shared by every camera's solver
+    private AprilTagTable blueAprilTags;
+    private AprilTagTable redAprilTags;
+
+    /*
+     * Fuses each loop's frames from every camera on a single worker thread. When too many batches
+     * are waiting the oldest is dropped. Not created in replay, where the solved poses are read from
+     * the log instead.
+     */
+    private final ThreadPoolExecutor solver;
+    private final MultiCameraFusion fusion;
+    private final ConcurrentLinkedQueue<PoseMeasurement.Measurement> solvedPoses =
+            new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<FrameLatencyInputs.FrameLatency> solvedLatencies =
+            new ConcurrentLinkedQueue<>();
+    private final AtomicLong solverDroppedFrames = new AtomicLong();
+
+    /*
+     * Each batch is solved at the most accurate level whose estimated cost fits before the solver
+     * falls behind, which is when the next loop's batch arrives with this one and any queued batches
+     * still unsolved. While frames are being dropped the level is not raised. The costs and the last
+     * dropped count are only used by the solver thread.
+     */
+    private static final SolveLevel[] solveLevels = SolveLevel.values();
+    private final double[] solveCosts = VisionConstants.initialSolveCosts.clone();
+    private long lastDroppedFrames = 0;
+    private volatile SolveLevel solveLevel = SolveLevel.FUSED;
+    private volatile double solveBudget = VisionConstants.solverBudgetSeconds;
+    private final AtomicLong solveLevelDowngrades = new AtomicLong();
+
+    // Each downgrade as "FROM -> TO", queued by the solver thread and logged by periodic
+    private static final String[][] downgradeNames = nameDowngrades();
+    private static final String[] noDowngrades = new String[0];
+    private final ConcurrentLinkedQueue<String> downgrades = new ConcurrentLinkedQueue<>();
+
+    private final PoseMeasurementInputs solvedInputs = new PoseMeasurementInputs();
+    private final FrameLatencyInputs latencyInputs = new FrameLatencyInputs();
+    private final VisionGate gate = new VisionGate();
+    private final ArrayList<PoseMeasurement.Measurement> measurements = new ArrayList<>();
+
+    private final LogChannel.InputsChannel solvedInputsChannel =
+            LogChannel.ofInputs("Vision/Solved");
+    private final LogChannel.InputsChannel latencyInputsChannel =
+            LogChannel.ofInputs("Vision/Latency");
+    private final LogChannel.DoubleChannel solveBudgetChannel =
+            LogChannel.ofDouble("Vision/SolveBudgetMS");
+    private final LogChannel.DoubleChannel gateDistanceChannel =
+            LogChannel.ofDouble("Vision/Gate/DistanceSquared");
+    private final LogChannel.Pose3dChannel robotPoseChannel =
+            LogChannel.ofPose3d("Odometry/Vision/RobotPose");
+    private final LogChannel.LongChannel solverDroppedFramesChannel =
+            LogChannel.ofLong("Vision/SolverDroppedFrames");
+    private final LogChannel.StringChannel solveLevelChannel =
+            LogChannel.ofString("Vision/SolveLevel");
+    private final LogChannel.LongChannel solveLevelDowngradesChannel =
+            LogChannel.ofLong("Vision/SolveLevelDowngrades");
+    private final LogChannel.StringArrayChannel downgradesChannel =
+            LogChannel.ofStringArray("Vision/SolveLevelDowngradeEvents");
 
     /** Sets up the cameras and AprilTag layout. */
     public Vision(CameraIO leftCamera, CameraIO rightCamera) {
         this.cameras = new ArrayList<>();
 
         try {
-            aprilTagLayout = AprilTagFields.k2023ChargedUp.loadAprilTagLayoutField();
+            AprilTagFieldLayout aprilTagLayout = AprilTagFields.k2023ChargedUp.loadAprilTagLayoutField();
+            blueAprilTags = new AprilTagTable(aprilTagLayout, OriginPosition.kBlueAllianceWallRightSide);
+            redAprilTags = new AprilTagTable(aprilTagLayout, OriginPosition.kRedAllianceWallRightSide);
 
-            cameras.add(new Camera(leftCamera, VisionConstants.leftCameraPosition, aprilTagLayout));
-            cameras.add(new Camera(rightCamera, VisionConstants.rightCameraPosition, aprilTagLayout));
+            cameras.add(
+                    new Camera(
+                            VisionConstants.leftCameraName,
+                            leftCamera,
+                            VisionConstants.leftCameraPosition,
+                            blueAprilTags));
+            cameras.add(
+                    new Camera(
+                            VisionConstants.rightCameraName,
+                            rightCamera,
+                            VisionConstants.rightCameraPosition,
+                            blueAprilTags));
         } catch (IOException e) {
             DriverStation.reportError("Failed to load AprilTagFieldLayout", e.getStackTrace());
         }
+
+        fusion = new MultiCameraFusion(cameras);
+
+        if (Constants.getMode() != Mode.REPLAY) {
+            solver =
+                    new ThreadPoolExecutor(
+                            1,
+                            1,
+                            0,
+                            TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(VisionConstants.maxQueuedBatches),
+                            (runnable) -> {
+                                Thread thread = new Thread(runnable, "VisionSolver");
+                                thread.setDaemon(true);
+                                return thread;
+                            },
+                            (runnable, executor) -> {
+                                Runnable dropped = executor.getQueue().poll();
+                                if (dropped != null) {
+                                    solverDroppedFrames.addAndGet(((FrameBatch) dropped).size());
+                                }
+                                executor.execute(runnable);
+                            });
+        } else {
+            solver = null;
+        }
     }
 
-    /** Returns a list of estimated global poses for each pose estimator. */
-    public List<Optional<PoseMeasurement.Measurement>> getEstimatedGlobalPoses(
-            Pose2d prevEstimatedRobotPose) {
-        ArrayList<Optional<Measurement>> robotPoses = new ArrayList<>();
+    /**
+     * Hands the frames every camera received this loop to the solver thread.
+     *
+     * @param poseHistory estimated robot poses, the pose at each frame's timestamp is used as the
+     *     reference instead of the current pose since the frame is already several loops old
+     */
+    public void submitFrames(PoseHistory poseHistory) {
+        if (solver == null) {
+            return;
+        }
 
+        int size = 0;
         for (Camera camera : cameras) {
-            Optional<Measurement> measurement = camera.getEstimatedPose(prevEstimatedRobotPose);
-            robotPoses.add(measurement);
+            size += camera.getFrameTimestamps().length;
+        }
+        if (size == 0) {
+            return;
         }
 
-        return robotPoses;
+        FrameBatch batch = new FrameBatch(cameras.size(), size, Timer.getFPGATimestamp());
+        for (int i = 0; i < cameras.size(); i++) {
+            Camera camera = cameras.get(i);
+            double[] frameTimestamps = camera.getFrameTimestamps();
+
+            Pose2d[] referencePoses = new Pose2d[frameTimestamps.length];
+            for (int j = 0; j < frameTimestamps.length; j++) {
+                referencePoses[j] = poseHistory.getPoseAt(frameTimestamps[j]).orElse(null);
+            }
+
+            batch.frameData[i] = camera.getFrameData();
+            batch.frameTimestamps[i] = frameTimestamps;
+            batch.framePublishTimestamps[i] = camera.getFramePublishTimestamps();
+            batch.readTimestamps[i] = camera.getReadTimestamp();
+            batch.cameraMatrixData[i] = camera.getCameraMatrixData();
+            batch.distCoeffsData[i] = camera.getDistCoeffsData();
+            batch.referencePoses[i] = referencePoses;
+        }
+        solver.execute(batch);
+    }
+
+    /**
+     * Returns the global poses solved since the last call that pass the {@link VisionGate}. The list
+     * is reused and cleared on the next call. The solved poses are logged as inputs, so they are read
+     * from the log in replay.
+     *
+     * @param poseHistory estimated robot poses the measurements are gated against
+     */
+    public List<PoseMeasurement.Measurement> getEstimatedGlobalPoses(PoseHistory poseHistory) {
+        solvedInputs.measurements.clear();
+        if (solver != null) {
+            PoseMeasurement.Measurement measurement;
+            while ((measurement = solvedPoses.poll()) != null) {
+                solvedInputs.measurements.add(measurement);
+            }
+        }
+        solvedInputsChannel.process(solvedInputs);
+
+        latencyInputs.frames.clear();
+        if (solver != null) {
+            FrameLatencyInputs.FrameLatency frame;
+            while ((frame = solvedLatencies.poll()) != null) {
+                latencyInputs.frames.add(frame);
+            }
+        }
+        latencyInputsChannel.process(latencyInputs);
+
+        // The measurements are fused as soon as this returns. Real time, so not reproduced in replay.
+        double fusionTimestamp = Logger.getInstance().getRealTimestamp() / 1e6;
+        for (FrameLatencyInputs.FrameLatency frame : latencyInputs.frames) {
+            cameras.get(frame.cameraIndex).recordLatency(frame, fusionTimestamp);
+        }
+        for (Camera camera : cameras) {
+            camera.logLatencies();
+        }
+
+        measurements.clear();
+        for (PoseMeasurement.Measurement measurement : solvedInputs.measurements) {
+            VisionGate.Result result = gate.gate(measurement, poseHistory);
+            gateDistanceChannel.record(gate.getLastDistanceSquared());
+            for (int i = 0; i < cameras.size(); i++) {
+                if ((measurement.sources & (1L << i)) != 0) {
+                    cameras.get(i).recordGateResult(result);
+                }
+            }
+
+            if (result != VisionGate.Result.REJECTED) {
+                robotPoseChannel.record(measurement.pose);
+                measurements.add(measurement);
+            }
+        }
+
+        return measurements;
     }
 
     @Override
     public void periodic() {
+        periodicSection.start();
         for (Camera camera : cameras) {
             camera.periodic();
         }
+        solverDroppedFramesChannel.record(solverDroppedFrames.get());
+        solveLevelChannel.record(solveLevel.name());
+        solveLevelDowngradesChannel.record(solveLevelDowngrades.get());
+        solveBudgetChannel.record(solveBudget * 1000.0);
+
+        // Only polled here, so every counted downgrade is still queued
+        int downgradeCount = downgrades.size();
+        String[] loopDowngrades = downgradeCount == 0 ? noDowngrades : new String[downgradeCount];
+        for (int i = 0; i < downgradeCount; i++) {
+            loopDowngrades[i] = downgrades.poll();
+        }
+        downgradesChannel.record(loopDowngrades);
+
+        periodicSection.stop();
     }
 
     /** Update the origin of pose based on alliance */
     public void updatePoseAlliance() {
         // Sets the april tag positions depending on which side the robot starts on.
+        AprilTagTable aprilTags =
+                DriverStation.getAlliance() == DriverStation.Alliance.Blue ? blueAprilTags : redAprilTags;
         for (Camera camera : cameras) {
-            PhotonPoseEstimator positionEstimation = camera.getPoseEstimator();
-            if (DriverStation.getAlliance() == DriverStation.Alliance.Blue) {
-                positionEstimation.getFieldTags().setOrigin(OriginPosition.kBlueAllianceWallRightSide);
-            } else {
-                positionEstimation.getFieldTags().setOrigin(OriginPosition.kRedAllianceWallRightSide);
+            camera.setAprilTags(aprilTags);
+        }
+    }
+
+    private static String[][] nameDowngrades() {
+        String[][] names = new String[solveLevels.length][solveLevels.length];
+        for (SolveLevel from : solveLevels) {
+            for (SolveLevel to : solveLevels) {
+                names[from.ordinal()][to.ordinal()] = from.name() + " -> " + to.name();
+            }
+        }
+        return names;
+    }
+
+    /** One loop's frames from every camera, indexed like the camera list. */
+    private class FrameBatch implements Runnable {
+        private final byte[][] frameData;
+        private final double[][] frameTimestamps;
+        private final double[][] framePublishTimestamps;
+        private final double[] readTimestamps;
+        private final double[][] cameraMatrixData;
+        private final double[][] distCoeffsData;
+        private final Pose2d[][] referencePoses;
+        private final int size;
+        private final double submitTimestamp;
+
+        private FrameBatch(int cameraCount, int size, double submitTimestamp) {
+            frameData = new byte[cameraCount][];
+            frameTimestamps = new double[cameraCount][];
+            framePublishTimestamps = new double[cameraCount][];
+            readTimestamps = new double[cameraCount];
+            cameraMatrixData = new double[cameraCount][];
+            distCoeffsData = new double[cameraCount][];
+            referencePoses = new Pose2d[cameraCount][];
+            this.size = size;
+            this.submitTimestamp = submitTimestamp;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        @Override
+        public void run() {
+            solveSpan.begin();
+            try {
+                SolveLevel previous = solveLevel;
+                SolveLevel level = selectSolveLevel(previous);
+                if (level.ordinal() > previous.ordinal()) {
+                    solveLevelDowngrades.incrementAndGet();
+                    downgrades.add(downgradeNames[previous.ordinal()][level.ordinal()]);
+                }
+                solveLevel = level;
+                fusion.setSolveLevel(level);
+
+                double start = Timer.getFPGATimestamp();
+                fusion.clear();
+                for (int i = 0; i < frameData.length; i++) {
+                    fusion.addFrames(
+                            i,
+                            frameData[i],
+                            frameTimestamps[i],
+                            framePublishTimestamps[i],
+                            readTimestamps[i],
+                            cameraMatrixData[i],
+                            distCoeffsData[i],
+                            referencePoses[i]);
+                }
+                int solved = fusion.solve(solvedPoses::add, solvedLatencies::add);
+                updateSolveCosts(level, solved, Timer.getFPGATimestamp() - start);
+            } catch (RuntimeException e) {
+                DriverStation.reportError("Vision solver failed: " + e.getMessage(), e.getStackTrace());
+            }
+            solveSpan.end();
+        }
+
+        /**
+         * Returns the most accurate level expected to solve the batch within the budget, no more
+         * accurate than the previous level if frames were dropped since the last batch.
+         */
+        private SolveLevel selectSolveLevel(SolveLevel previous) {
+            // The next batch is submitted about a loop after this one, and every batch queued behind
+            // this one has to be solved before it too
+            double untilNextBatch =
+                    submitTimestamp + LoggedRobot.defaultPeriodSecs - Timer.getFPGATimestamp();
+            double budget =
+                    Math.min(
+                            VisionConstants.solverBudgetSeconds,
+                            untilNextBatch / (1 + solver.getQueue().size()));
+            solveBudget = budget;
+
+            long droppedFrames = solverDroppedFrames.get();
+            int first = droppedFrames != lastDroppedFrames ? previous.ordinal() : 0;
+            lastDroppedFrames = droppedFrames;
+
+            for (int i = first; i < solveLevels.length; i++) {
+                SolveLevel level = solveLevels[i];
+                int frames = level == SolveLevel.LATEST_ONLY ? Math.min(size, frameData.length) : size;
+                if (frames * solveCosts[i] <= budget) {
+                    return level;
+                }
+            }
+            return SolveLevel.LATEST_ONLY;
+        }
+
+        /**
+         * Smooths the measured cost per frame into the used level's estimate. The other levels'
+         * estimates relax back to their initial values, so a level that was too slow once is tried
+         * again.
+         */
+        private void updateSolveCosts(SolveLevel used, int solved, double seconds) {
+            double smoothing = VisionConstants.solveCostSmoothing;
+            for (SolveLevel level : solveLevels) {
+                int i = level.ordinal();
+                if (level != used) {
+                    solveCosts[i] += smoothing * (VisionConstants.initialSolveCosts[i] - solveCosts[i]);
+                } else if (solved > 0) {
+                    solveCosts[i] += smoothing * (seconds / solved - solveCosts[i]);
+                }
             }
         }
     }
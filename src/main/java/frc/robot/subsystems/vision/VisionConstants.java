@@ -29,6 +29,23 @@ public final class VisionConstants {
                             Units.inchesToMeters(31.185)),
                     new Rotation3d(0, Units.degreesToRadians(20), Units.degreesToRadians(-5)));
 
+    /* Frames read from each camera per loop, older frames beyond this are dropped */
+    public static final int maxFramesPerCycle = 8;
+    /* Frame batches waiting for the solver, older batches beyond this are dropped */
+    public static final int maxQueuedBatches = 2;
+    /* Frames from different cameras captured within this many seconds are solved together */
+    public static final double fusionWindowSeconds = 0.010;
+    /* Tag corners from all cameras in one fused solve, 2 cameras seeing 8 tags each */
+    public static final int maxFusedCorners = 64;
+    /* Most of a loop the solver may spend on one loop's frames */
+    public static final double solverBudgetSeconds = 0.010;
+    /* Starting estimates of the seconds to solve one frame at each MultiCameraFusion.SolveLevel */
+    public static final double[] initialSolveCosts = {0.003, 0.002, 0.0005, 0.0005};
+    /* Weight of each batch's measured cost in the estimates */
+    public static final double solveCostSmoothing = 0.1;
+    /* Most recent frames each camera's latency percentiles are computed over */
+    public static final int latencyWindow = 200;
+
     public static final class PoseEstimation {
         public interface StandardDeviation {
             Vector<N3> forMeasurement(double distance, int count);
@@ -49,6 +66,42 @@ public final class VisionConstants {
         public static final double POSE_AMBIGUITY_CUTOFF = .3;
 
         public static final double POSE_DISTANCE_CUTOFF = FieldConstants.fieldLength / 2;
+
+        /* Fused poses with a larger RMS reprojection error in pixels fall back to one camera's */
+        public static final double MAX_REPROJECTION_ERROR = 5.0;
+    }
+
+    public static final class Gating {
+        /* Uncertainty of the estimated pose a measurement is compared against, [x, y, theta]ᵀ */
+        public static final Vector<N3> PREDICTION_STD_DEV = VecBuilder.fill(0.1, 0.1, 0.05);
+
+        /* Squared Mahalanobis distances, chi-squared with 3 degrees of freedom at 95% and 99.9% */
+        public static final double ACCEPT_THRESHOLD = 7.81;
+        public static final double REJECT_THRESHOLD = 16.27;
+
+        /* Rejections in a row before a measurement is accepted anyway */
+        public static final int MAX_CONSECUTIVE_REJECTS = 10;
+    }
+
+    /* Simulated cameras, see CameraIOSim */
+    public static final class Sim {
+        public static final int imageWidth = 640;
+        public static final int imageHeight = 480;
+        /* Row major camera matrix and k1, k2, p1, p2, k3 distortion, about 70 degrees across */
+        public static final double[] cameraMatrixData = {460, 0, 320, 0, 460, 240, 0, 0, 1};
+        public static final double[] distCoeffsData = {0, 0, 0, 0, 0};
+
+        public static final double frameRate = 30;
+        /* Capture to publish time of each frame */
+        public static final double latencySeconds = 0.035;
+        public static final double latencyStdDevSeconds = 0.005;
+
+        /* Standard deviation of each detected corner */
+        public static final double cornerNoisePixels = 0.5;
+        /* Standard deviation of each target pose axis per meter of distance */
+        public static final double poseNoisePerMeter = 0.01;
+        public static final double ambiguityPerMeter = 0.03;
+        public static final double maxTagDistance = 7.0;
     }
 
     public static class FieldConstants {
@@ -0,0 +1,82 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import frc.VectorTools.util.PoseHistory;
+import frc.VectorTools.util.PoseMeasurement;
+
+/**
+ * Compares vision measurements against the estimated pose at their timestamp before they are fused.
+ * The squared Mahalanobis distance uses the measurement's standard deviations combined with {@link
+ * VisionConstants.Gating#PREDICTION_STD_DEV}. Close measurements are accepted, farther ones have
+ * their standard deviations inflated, and outliers are rejected.
+ *
+ * <p>After {@link VisionConstants.Gating#MAX_CONSECUTIVE_REJECTS} rejections in a row the next
+ * measurement is accepted unchanged, so the estimate can recover when it is the one that is wrong.
+ */
+class VisionGate {
+    enum Result {
+        ACCEPTED,
+        DOWNWEIGHTED,
+        REJECTED
+    }
+
+    private final double[] predicted = new double[PoseHistory.SAMPLE_SIZE];
+    private int consecutiveRejects = 0;
+    private double lastDistanceSquared = 0.0;
+
+    /**
+     * Gates a measurement, inflating its standard deviations if it is down-weighted.
+     *
+     * @param measurement the measurement to check
+     * @param poseHistory estimated robot poses, accepted unconditionally if empty
+     */
+    Result gate(PoseMeasurement.Measurement measurement, PoseHistory poseHistory) {
+        if (!poseHistory.getSampleAt(measurement.timestamp, predicted)) {
+            lastDistanceSquared = 0.0;
+            return Result.ACCEPTED;
+        }
+
+        double dx = measurement.pose.getX() - predicted[PoseHistory.X];
+        double dy = measurement.pose.getY() - predicted[PoseHistory.Y];
+        double dTheta =
+                MathUtil.angleModulus(measurement.pose.getRotation().getZ() - predicted[PoseHistory.THETA]);
+
+        lastDistanceSquared =
+                dx * dx / variance(measurement, 0)
+                        + dy * dy / variance(measurement, 1)
+                        + dTheta * dTheta / variance(measurement, 2);
+
+        if (lastDistanceSquared <= VisionConstants.Gating.ACCEPT_THRESHOLD
+                || consecutiveRejects >= VisionConstants.Gating.MAX_CONSECUTIVE_REJECTS) {
+            consecutiveRejects = 0;
+            return Result.ACCEPTED;
+        }
+
+        if (lastDistanceSquared <= VisionConstants.Gating.REJECT_THRESHOLD) {
+            consecutiveRejects = 0;
+            // Scale so the measurement sits on the acceptance boundary
+            double scale = Math.sqrt(lastDistanceSquared / VisionConstants.Gating.ACCEPT_THRESHOLD);
+            measurement.stdDeviation =
+                    VecBuilder.fill(
+                            measurement.stdDeviation.get(0, 0) * scale,
+                            measurement.stdDeviation.get(1, 0) * scale,
+                            measurement.stdDeviation.get(2, 0) * scale);
+            return Result.DOWNWEIGHTED;
+        }
+
+        consecutiveRejects++;
+        return Result.REJECTED;
+    }
+
+    /** Returns the squared Mahalanobis distance of the last gated measurement. */
+    double getLastDistanceSquared() {
+        return lastDistanceSquared;
+    }
+
+    private static double variance(PoseMeasurement.Measurement measurement, int row) {
+        double measurementStdDev = measurement.stdDeviation.get(row, 0);
+        double predictionStdDev = VisionConstants.Gating.PREDICTION_STD_DEV.get(row, 0);
+        return measurementStdDev * measurementStdDev + predictionStdDev * predictionStdDev;
+    }
+}
@@ -1,65 +1,130 @@
 package frc.robot.subsystems.wrist;
 
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.controller.ArmFeedforward;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.lib.util.LogChannel;
+import frc.lib.util.LoopProfiler;
+import frc.lib.util.SampleTier;
+import frc.lib.util.TieredInputs;
 import frc.robot.Constants.Position;
+import frc.robot.RobotState;
 import frc.robot.subsystems.wrist.WristConstants.PIDFFmode;
-import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.LoggedRobot;
 
 public class Wrist extends SubsystemBase {
+    private final LoopProfiler.Section periodicSection =
+            LoopProfiler.getInstance().section("Subsystems/Wrist");
 
     private double targetPosition;
     private final PIDController pidController;
-    private ArmFeedforward feedForward;
+    private final WristGainSchedule gainSchedule =
+            new WristGainSchedule(
+                    WristConstants.scheduleHeights,
+                    WristConstants.unweightedSchedule,
+                    WristConstants.weightedSchedule);
+    private PIDFFmode mode = PIDFFmode.UNWEIGHTED;
+    // Blend from the unweighted gains at 0 to the weighted ones at 1
+    private double load = 0.0;
+
+    // Gains last sent to the onboard controller
+    private double onboardP;
+    private double onboardI;
+    private double onboardD;
 
     private final WristIO io;
     private final WristIOInputsAutoLogged inputs = new WristIOInputsAutoLogged();
+    private final LogChannel.InputsChannel inputsChannel = LogChannel.ofInputs("Wrist");
+    private final TieredInputs<WristIOSlowInputsAutoLogged> slowInputs;
+    private final LogChannel.StringChannel pidModeChannel = LogChannel.ofString("WristPIDMode");
+    private final LogChannel.DoubleChannel targetPositionChannel =
+            LogChannel.ofDouble("WristTargetPosition");
+    private final LogChannel.DoubleChannel loadChannel = LogChannel.ofDouble("WristLoad");
 
     public Wrist(WristIO io) {
 
         this.io = io;
+        slowInputs =
+                new TieredInputs<>(
+                        "Wrist/Slow",
+                        SampleTier.SLOW,
+                        new WristIOSlowInputsAutoLogged(),
+                        io::updateSlowInputs);
         pidController =
                 new PIDController(
                         WristConstants.unweightedP, WristConstants.unweightedI, WristConstants.unweightedD);
         pidController.enableContinuousInput(0, Math.PI * 2);
         pidController.setTolerance(.25);
 
-        feedForward =
-                new ArmFeedforward(
-                        WristConstants.unweightedS,
-                        WristConstants.unweightedG,
-                        WristConstants.unweightedV,
-                        WristConstants.unweightedA);
+        onboardP = WristConstants.unweightedP;
+        onboardI = WristConstants.unweightedI;
+        onboardD = WristConstants.unweightedD;
+        recordMode();
 
         setPosition(Position.STANDBY.getWrist());
     }
 
     @Override
     public void periodic() {
+        periodicSection.start();
         io.updateInputs(inputs);
-        Logger.getInstance().processInputs("Wrist", inputs);
-
-        double pidMotorSpeed =
-                pidController.calculate(inputs.absoluteEncoderPosition, targetPosition)
-                        + feedForward.calculate(targetPosition, 0);
-        setMotor(
-                MathUtil.clamp(
-                        (pidMotorSpeed), -WristConstants.maxMotorVoltage, WristConstants.maxMotorVoltage));
+        inputsChannel.process(inputs);
+        slowInputs.periodic();
+
+        // Moves the load toward the mode's so the gains blend rather than step
+        double targetLoad = mode == PIDFFmode.WEIGHTED ? 1.0 : 0.0;
+        double maxStep = LoggedRobot.defaultPeriodSecs / WristConstants.loadBlendSeconds;
+        load += MathUtil.clamp(targetLoad - load, -maxStep, maxStep);
+        loadChannel.record(load);
+        gainSchedule.update(RobotState.getLatest().elevatorPosition, load);
+
+        // Matches ArmFeedforward at zero velocity
+        double feedForward = gainSchedule.getG() * Math.cos(targetPosition);
+        if (WristConstants.onboardControl) {
+            updateOnboardGains();
+            io.setPosition(targetPosition, feedForward);
+        } else {
+            pidController.setPID(gainSchedule.getP(), gainSchedule.getI(), gainSchedule.getD());
+            double pidMotorSpeed =
+                    pidController.calculate(inputs.absoluteEncoderPosition, targetPosition) + feedForward;
+            setMotor(
+                    MathUtil.clamp(
+                            (pidMotorSpeed), -WristConstants.maxMotorVoltage, WristConstants.maxMotorVoltage));
+        }
+
+        periodicSection.stop();
+    }
+
+    /** Resends the scheduled gains to the SparkMax once they have drifted from the last sent. */
+    private void updateOnboardGains() {
+        if (changed(onboardP, gainSchedule.getP())
+                || changed(onboardI, gainSchedule.getI())
+                || changed(onboardD, gainSchedule.getD())) {
+            onboardP = gainSchedule.getP();
+            onboardI = gainSchedule.getI();
+            onboardD = gainSchedule.getD();
+            io.setGains(onboardP, onboardI, onboardD);
+        }
     }
 
+    private static boolean changed(double sent, double scheduled) {
+        return Math.abs(scheduled - sent)
+                > WristConstants.onboardGainTolerance * Math.max(Math.abs(sent), Math.abs(scheduled));
+    }
+
+    /** Sets the load the gains blend toward. Cheap enough to call every loop. */
     public void setPIDFFMode(PIDFFmode mode) {
-        pidController.setPID(mode.kP, mode.kI, mode.kD);
-        feedForward = new ArmFeedforward(mode.kS, mode.kG, mode.kV, mode.kA);
-        if (mode == PIDFFmode.WEIGHTED) {
-            Logger.getInstance().recordOutput("WristPIDMode", "Weighted");
-        } else {
-            Logger.getInstance().recordOutput("WristPIDMode", "Unweighted");
+        if (mode != this.mode) {
+            this.mode = mode;
+            recordMode();
         }
     }
 
+    private void recordMode() {
+        pidModeChannel.record(mode == PIDFFmode.WEIGHTED ? "Weighted" : "Unweighted");
+    }
+
     public double getEncoderPosition() {
         return inputs.absoluteEncoderPosition;
     }
@@ -73,7 +138,7 @@ public class Wrist extends SubsystemBase {
     }
 
     public void setPosition(double position) {
-        Logger.getInstance().recordOutput("WristTargetPosition", position);
+        targetPositionChannel.record(position);
         targetPosition = position;
     }
 
@@ -82,6 +147,10 @@ public class Wrist extends SubsystemBase {
     }
 
     public boolean atSetpoint() {
+        if (WristConstants.onboardControl) {
+            return pidController.getPositionTolerance()
+                    >= Math.abs(MathUtil.angleModulus(targetPosition - getEncoderPosition()));
+        }
         return pidController.atSetpoint();
     }
 
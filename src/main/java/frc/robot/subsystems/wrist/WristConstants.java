@@ -50,4 +50,23 @@ public final class WristConstants {
     public static final double absoluteEncoderOffset = 5.412927;
 
     public static final int currentLimit = 40;
+
+    /* Gain Schedule */
+    // Elevator heights in rotations the tables are tuned at. Only the elevator-down gains have been
+    // measured, so there is a single row and the height has no effect. Add a row per height once the
+    // wrist is tuned there
+    public static final double[] scheduleHeights = {0.0};
+    // kP, kI, kD and kG at each height
+    public static final double[][] unweightedSchedule = {
+        {unweightedP, unweightedI, unweightedD, unweightedG}
+    };
+    public static final double[][] weightedSchedule = {{weightedP, weightedI, weightedD, weightedG}};
+    // Time to blend fully between the unweighted and weighted gains
+    public static final double loadBlendSeconds = 0.25;
+
+    /* Onboard Control */
+    // Runs the PID on the SparkMax from the absolute encoder instead of on the roboRIO
+    public static final boolean onboardControl = false;
+    // Scheduled PID gains are only resent to the SparkMax once they change by this fraction
+    public static final double onboardGainTolerance = 0.02;
 }
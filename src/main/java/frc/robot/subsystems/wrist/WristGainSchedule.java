@@ -0,0 +1,91 @@
+package frc.robot.subsystems.wrist;
+
+/**
+ * Wrist gains scheduled by elevator height and load. Each load state has a table of gains tuned at
+ * a set of elevator heights, interpolated between, and the two load states are blended so picking
+ * up or dropping a game piece doesn't step the gains. Updating allocates nothing.
+ */
+public class WristGainSchedule {
+    // Columns of each table row
+    private static final int p = 0;
+    private static final int i = 1;
+    private static final int d = 2;
+    private static final int g = 3;
+
+    private final double[] heights;
+    private final double[][] unweighted;
+    private final double[][] weighted;
+
+    private double kP;
+    private double kI;
+    private double kD;
+    private double kG;
+
+    /**
+     * @param heights ascending elevator heights the tables are tuned at
+     * @param unweighted kP, kI, kD and kG at each height without a game piece
+     * @param weighted kP, kI, kD and kG at each height while holding a cone
+     */
+    public WristGainSchedule(double[] heights, double[][] unweighted, double[][] weighted) {
+        if (unweighted.length != heights.length || weighted.length != heights.length) {
+            throw new IllegalArgumentException("Gain tables must have a row for every height");
+        }
+        this.heights = heights;
+        this.unweighted = unweighted;
+        this.weighted = weighted;
+        update(heights[0], 0.0);
+    }
+
+    /**
+     * Looks up the gains for a height and load.
+     *
+     * @param elevatorHeight elevator position, clamped to the table's heights
+     * @param load blend between unweighted at 0 and weighted at 1
+     */
+    public void update(double elevatorHeight, double load) {
+        // Finds the two rows the height is between
+        int upper = 1;
+        while (upper < heights.length - 1 && elevatorHeight > heights[upper]) {
+            upper++;
+        }
+        int lower = upper - 1;
+        double t = 0.0;
+        if (upper < heights.length) {
+            t = (elevatorHeight - heights[lower]) / (heights[upper] - heights[lower]);
+            t = Math.max(0.0, Math.min(1.0, t));
+        } else {
+            upper = lower;
+        }
+
+        kP = lookup(p, lower, upper, t, load);
+        kI = lookup(i, lower, upper, t, load);
+        kD = lookup(d, lower, upper, t, load);
+        kG = lookup(g, lower, upper, t, load);
+    }
+
+    private double lookup(int column, int lower, int upper, double t, double load) {
+        double unweightedGain = interpolate(unweighted[lower][column], unweighted[upper][column], t);
+        double weightedGain = interpolate(weighted[lower][column], weighted[upper][column], t);
+        return interpolate(unweightedGain, weightedGain, load);
+    }
+
+    private static double interpolate(double start, double end, double t) {
+        return start + (end - start) * t;
+    }
+
+    public double getP() {
+        return kP;
+    }
+
+    public double getI() {
+        return kI;
+    }
+
+    public double getD() {
+        return kD;
+    }
+
+    public double getG() {
+        return kG;
+    }
+}
@@ -10,12 +10,30 @@ public interface WristIO {
 
         public double appliedVolts = 0.0;
         public double[] currentAmps = new double[] {};
-        public double[] tempCelcius = new double[] {};
+    }
+
+    /** Inputs sampled at {@link frc.lib.util.SampleTier#SLOW}. */
+    @AutoLog
+    public static class WristIOSlowInputs {
+        public double tempCelcius = 0.0;
     }
 
     public default void updateInputs(WristIOInputs inputs) {}
 
+    public default void updateSlowInputs(WristIOSlowInputs inputs) {}
+
     public default void setVoltage(double speed) {}
 
     public default void resetRelativeEncoder() {}
+
+    /**
+     * Runs the motor's onboard position controller from the absolute encoder.
+     *
+     * @param position setpoint in radians
+     * @param ffVoltage feedforward added to the controller's output
+     */
+    public default void setPosition(double position, double ffVoltage) {}
+
+    /** Sets the onboard controller's gains, in volts per radian as used on the roboRIO. */
+    public default void setGains(double kP, double kI, double kD) {}
 }
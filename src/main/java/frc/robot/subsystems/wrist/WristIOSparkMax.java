@@ -2,15 +2,27 @@ package frc.robot.subsystems.wrist;
 
 import com.revrobotics.AbsoluteEncoder;
 import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMax.ControlType;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkMaxAbsoluteEncoder;
+import com.revrobotics.SparkMaxPIDController;
+import frc.lib.util.CANBusPlanner;
+import frc.lib.util.CANBusPlanner.SparkMaxPlan;
+import frc.lib.util.CANBusPlanner.SparkMaxSignal;
+import frc.lib.util.CANSparkMaxUtil.Usage;
+import frc.lib.util.CachedSignal;
+import frc.lib.util.SparkMaxStatusReader;
 
 public class WristIOSparkMax implements WristIO {
     private final RelativeEncoder relativeEncoder;
     private final CANSparkMax wristMotor;
     private final AbsoluteEncoder absoluteEncoder;
+    private final SparkMaxPIDController wristController;
+
+    private final SparkMaxStatusReader wristStatus;
+    private final CachedSignal absolutePosition;
 
     public WristIOSparkMax() {
         wristMotor = new CANSparkMax(WristConstants.wristMotorId, MotorType.kBrushless);
@@ -29,16 +41,41 @@ public class WristIOSparkMax implements WristIO {
         relativeEncoder.setPosition(absoluteEncoder.getPosition());
 
         wristMotor.setSmartCurrentLimit(WristConstants.currentLimit);
+
+        wristController = wristMotor.getPIDController();
+        wristController.setFeedbackDevice(absoluteEncoder);
+        wristController.setPositionPIDWrappingEnabled(true);
+        wristController.setPositionPIDWrappingMinInput(0);
+        wristController.setPositionPIDWrappingMaxInput(2 * Math.PI);
+        wristController.setOutputRange(
+                -WristConstants.maxMotorVoltage / 12.0, WristConstants.maxMotorVoltage / 12.0);
+        setGains(WristConstants.unweightedP, WristConstants.unweightedI, WristConstants.unweightedD);
+
+        SparkMaxPlan plan =
+                CANBusPlanner.getInstance()
+                        .registerSparkMax(
+                                "SparkMax" + WristConstants.wristMotorId, wristMotor, Usage.kVelocityOnly);
+        // The wrist is controlled from the absolute encoder, which defaults to a 200ms frame
+        plan.require(SparkMaxSignal.kAbsolutePosition, 20);
+        // Applied volts are logged every loop
+        plan.require(SparkMaxSignal.kAppliedOutput, 20);
+
+        wristStatus = new SparkMaxStatusReader(wristMotor, relativeEncoder);
+        absolutePosition = new CachedSignal(absoluteEncoder::getPosition);
     }
 
     @Override
     public void updateInputs(WristIOInputs inputs) {
-        inputs.velocity = relativeEncoder.getVelocity();
-        inputs.absoluteEncoderPosition = absoluteEncoder.getPosition();
+        inputs.velocity = wristStatus.getVelocity();
+        inputs.absoluteEncoderPosition = absolutePosition.get();
 
-        inputs.appliedVolts = wristMotor.getAppliedOutput() * wristMotor.getBusVoltage();
-        inputs.currentAmps = new double[] {wristMotor.getOutputCurrent()};
-        inputs.tempCelcius = new double[] {wristMotor.getMotorTemperature()};
+        inputs.appliedVolts = wristStatus.getAppliedVolts();
+        inputs.currentAmps = new double[] {wristStatus.getOutputCurrent()};
+    }
+
+    @Override
+    public void updateSlowInputs(WristIOSlowInputs inputs) {
+        inputs.tempCelcius = wristStatus.getMotorTemperature();
     }
 
     @Override
@@ -50,4 +87,17 @@ public class WristIOSparkMax implements WristIO {
     public void setVoltage(double voltage) {
         wristMotor.setVoltage(voltage);
     }
+
+    @Override
+    public void setPosition(double position, double ffVoltage) {
+        wristController.setReference(position, ControlType.kPosition, 0, ffVoltage);
+    }
+
+    @Override
+    public void setGains(double kP, double kI, double kD) {
+        // The SparkMax works in duty cycle and a 1 ms period
+        wristController.setP(kP / 12.0);
+        wristController.setI(kI / 12.0 * 0.001);
+        wristController.setD(kD / 12.0 / 0.001);
+    }
 }
@@ -0,0 +1,46 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import frc.lib.config.CTREConfigs;
+import frc.lib.util.CANBusPlanner;
+import frc.robot.subsystems.elevator.ElevatorIOSparkMax;
+import frc.robot.subsystems.intake.IntakeIOSparkMax;
+import frc.robot.subsystems.swerve.GyroIOPigeon2;
+import frc.robot.subsystems.swerve.ModuleIOSparkMax;
+import frc.robot.subsystems.swerve.SwerveConstants;
+import frc.robot.subsystems.wrist.WristIOSparkMax;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Creates every real IO implementation, as the robot does, and checks that the status frames they
+ * plan fit in the CAN bus budget.
+ */
+public class CANBusBudgetTest {
+    @BeforeAll
+    public static void setup() {
+        assertTrue(HAL.initialize(500, 0));
+        Robot.ctreConfigs = new CTREConfigs();
+    }
+
+    @Test
+    public void plannedUtilizationIsWithinBudget() {
+        new GyroIOPigeon2();
+        new ModuleIOSparkMax(SwerveConstants.Mod0.constants);
+        new ModuleIOSparkMax(SwerveConstants.Mod1.constants);
+        new ModuleIOSparkMax(SwerveConstants.Mod2.constants);
+        new ModuleIOSparkMax(SwerveConstants.Mod3.constants);
+        new IntakeIOSparkMax();
+        new WristIOSparkMax();
+        new ElevatorIOSparkMax();
+
+        double utilization = CANBusPlanner.getInstance().getPlannedUtilization();
+        assertTrue(
+                utilization <= Constants.CANBus.maxUtilization,
+                String.format(
+                        "Planned CAN bus utilization %.1f%% is over the %.1f%% budget",
+                        utilization * 100, Constants.CANBus.maxUtilization * 100));
+    }
+}
@@ -0,0 +1,68 @@
+package frc.robot.subsystems.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.subsystems.vision.CameraIO;
+import frc.robot.subsystems.vision.Vision;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a drive cycle, reading the modules and commanding them from chassis speeds, does not
+ * allocate once warmed up.
+ */
+public class SwerveAllocationTest {
+    private static final int warmupCycles = 20_000;
+    private static final int measuredCycles = 10_000;
+    // Leaves room for the occasional allocation by the JVM itself, not for one per cycle
+    private static final double maxBytesPerCycle = 8.0;
+
+    @BeforeAll
+    public static void setup() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @Test
+    public void driveCycleDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        Swerve swerve =
+                new Swerve(
+                        new GyroIO() {},
+                        new ModuleIO() {},
+                        new ModuleIO() {},
+                        new ModuleIO() {},
+                        new ModuleIO() {},
+                        new Vision(new CameraIO() {}, new CameraIO() {}));
+
+        for (int i = 0; i < warmupCycles; i++) {
+            driveCycle(swerve, i);
+        }
+
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < measuredCycles; i++) {
+            driveCycle(swerve, i);
+        }
+        double bytesPerCycle =
+                (threadBean.getThreadAllocatedBytes(threadId) - start) / (double) measuredCycles;
+
+        assertTrue(
+                bytesPerCycle <= maxBytesPerCycle,
+                "Drive cycle allocated " + bytesPerCycle + " bytes per cycle");
+    }
+
+    private static void driveCycle(Swerve swerve, int cycle) {
+        double t = cycle * 0.02;
+        swerve.updateModules();
+        swerve.drive(Math.cos(t) * 3.0, Math.sin(t) * 2.0, Math.sin(t * 0.5), true, false);
+        swerve.getPositions();
+        swerve.getStates();
+        swerve.getYaw();
+    }
+}